@@ -0,0 +1,49 @@
+package com.runnersteam.runners.benchmark;
+
+import static java.time.LocalDate.now;
+import static java.time.temporal.ChronoUnit.YEARS;
+
+import com.runnersteam.runners.RunnersApplication;
+import com.runnersteam.runners.model.Runner;
+import java.util.stream.Stream;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Boots the whole application against an in-memory H2 database. The stream test binder on the
+ * test classpath replaces the rabbit binder, so no broker is needed.
+ */
+final class BenchmarkApplication {
+
+  private BenchmarkApplication() {
+  }
+
+  static ConfigurableApplicationContext start(WebApplicationType webApplicationType,
+      String... properties) {
+    Stream<String> defaults = Stream.of(
+        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=sa",
+        "server.port=0",
+        "logging.level.root=WARN",
+        "runners.outbox.publisher-confirms=false");
+    return new SpringApplicationBuilder(RunnersApplication.class)
+        .web(webApplicationType)
+        .run(Stream.concat(defaults, Stream.of(properties))
+            .map(property -> "--" + property)
+            .toArray(String[]::new));
+  }
+
+  static Runner runner(String nickname) {
+    return Runner.builder()
+        .nickname(nickname)
+        .name("theName")
+        .surname("theSurname")
+        .email(nickname + "@email")
+        .birthDate(now().minus(35, YEARS))
+        .lastRace("theLastRace")
+        .build();
+  }
+}
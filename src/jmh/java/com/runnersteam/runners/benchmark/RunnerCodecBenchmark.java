@@ -0,0 +1,64 @@
+package com.runnersteam.runners.benchmark;
+
+import static com.runnersteam.runners.benchmark.BenchmarkApplication.runner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.runnersteam.runners.model.Runner;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Encodes and decodes a runner as JSON and as CBOR, the two payload formats of the API and the
+ * registration events. The encoded size is logged when each trial starts.
+ */
+@Slf4j
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RunnerCodecBenchmark {
+
+  @Param({"json", "cbor"})
+  private String format;
+
+  private ObjectMapper objectMapper;
+  private Runner runner;
+  private byte[] payload;
+
+  @Setup
+  public void setUp() throws IOException {
+    Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+    objectMapper = "cbor".equals(format) ? builder.factory(new CBORFactory()).build()
+        : builder.build();
+    runner = runner("theNickname").toBuilder().subscriptionDate(LocalDate.now()).build();
+    payload = objectMapper.writeValueAsBytes(runner);
+    log.info("setUp-" + format + " payload of " + payload.length + " bytes");
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return objectMapper.writeValueAsBytes(runner);
+  }
+
+  @Benchmark
+  public Runner deserialize() throws IOException {
+    return objectMapper.readValue(payload, Runner.class);
+  }
+}
@@ -0,0 +1,81 @@
+package com.runnersteam.runners.benchmark;
+
+import static com.runnersteam.runners.benchmark.BenchmarkApplication.runner;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.runnersteam.runners.service.RunnersService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RunnersControllerBenchmark {
+
+  private static final String EXISTING = "existing";
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private ConfigurableApplicationContext context;
+  private MockMvc mockMvc;
+  private ObjectMapper objectMapper;
+  private byte[] update;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    context = BenchmarkApplication.start(WebApplicationType.SERVLET);
+    mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+    objectMapper = context.getBean(ObjectMapper.class);
+    context.getBean(RunnersService.class).create(runner(EXISTING));
+    update = objectMapper.writeValueAsBytes(runner(EXISTING));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public MvcResult findByNickname() throws Exception {
+    return mockMvc.perform(get("/" + EXISTING)).andReturn();
+  }
+
+  @Benchmark
+  public MvcResult create() throws Exception {
+    return mockMvc.perform(post("/")
+        .contentType(APPLICATION_JSON)
+        .content(objectMapper.writeValueAsBytes(runner("runner" + sequence.incrementAndGet()))))
+        .andReturn();
+  }
+
+  @Benchmark
+  public MvcResult update() throws Exception {
+    return mockMvc.perform(put("/" + EXISTING).contentType(APPLICATION_JSON).content(update))
+        .andReturn();
+  }
+}
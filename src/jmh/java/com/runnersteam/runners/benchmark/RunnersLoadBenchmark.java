@@ -0,0 +1,93 @@
+package com.runnersteam.runners.benchmark;
+
+import static com.runnersteam.runners.benchmark.BenchmarkApplication.runner;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Drives the servlet and the reactive runtimes over real HTTP with many concurrent clients, so
+ * thread and connection pool limits show up in the results. Change the client count with -t.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class RunnersLoadBenchmark {
+
+  private static final String EXISTING = "existing";
+
+  @Param({"servlet", "reactive"})
+  public String mode;
+
+  private ConfigurableApplicationContext context;
+  private HttpClient httpClient;
+  private HttpRequest findByNickname;
+  private HttpRequest updateLastRace;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    context = "reactive".equals(mode)
+        ? BenchmarkApplication.start(WebApplicationType.REACTIVE,
+        "spring.profiles.active=reactive",
+        "runners.r2dbc.url=r2dbc:pool:h2:mem:///benchmark",
+        "runners.r2dbc.username=sa",
+        "runners.r2dbc.password=sa")
+        : BenchmarkApplication.start(WebApplicationType.SERVLET);
+    URI base = URI.create(
+        "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/");
+    ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+    byte[] existing = objectMapper.writeValueAsBytes(runner(EXISTING));
+
+    httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    httpClient.send(HttpRequest.newBuilder(base)
+        .header("Content-Type", "application/json")
+        .POST(BodyPublishers.ofByteArray(existing))
+        .build(), BodyHandlers.discarding());
+    findByNickname = HttpRequest.newBuilder(base.resolve(EXISTING)).GET().build();
+    updateLastRace = HttpRequest.newBuilder(base.resolve(EXISTING))
+        .header("Content-Type", "application/json")
+        .header("Prefer", "return=minimal")
+        .PUT(BodyPublishers.ofByteArray(existing))
+        .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int findByNickname() throws Exception {
+    return httpClient.send(findByNickname, BodyHandlers.ofByteArray()).statusCode();
+  }
+
+  @Benchmark
+  public int updateLastRace() throws Exception {
+    return httpClient.send(updateLastRace, BodyHandlers.discarding()).statusCode();
+  }
+}
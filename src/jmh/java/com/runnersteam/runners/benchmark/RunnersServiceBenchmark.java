@@ -0,0 +1,78 @@
+package com.runnersteam.runners.benchmark;
+
+import static com.runnersteam.runners.benchmark.BenchmarkApplication.runner;
+
+import com.runnersteam.runners.cache.RunnersCache;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.service.RunnersService;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RunnersServiceBenchmark {
+
+  private static final String EXISTING = "existing";
+
+  private final AtomicLong sequence = new AtomicLong();
+
+  private ConfigurableApplicationContext context;
+  private RunnersService runnersService;
+  private RunnersCache runnersCache;
+  private Runner update;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start(WebApplicationType.NONE);
+    runnersService = context.getBean(RunnersService.class);
+    runnersCache = context.getBean(RunnersCache.class);
+    runnersService.create(runner(EXISTING));
+    update = runner(EXISTING);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Optional<Runner> findByNicknameCached() {
+    return runnersService.findByNickname(EXISTING);
+  }
+
+  @Benchmark
+  public Optional<Runner> findByNicknameUncached() {
+    runnersCache.invalidateLocally(List.of(EXISTING));
+    return runnersService.findByNickname(EXISTING);
+  }
+
+  @Benchmark
+  public Runner create() {
+    return runnersService.create(runner("runner" + sequence.incrementAndGet()));
+  }
+
+  @Benchmark
+  public Runner update() {
+    return runnersService.update(update);
+  }
+}
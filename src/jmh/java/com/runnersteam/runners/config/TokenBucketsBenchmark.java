@@ -0,0 +1,51 @@
+package com.runnersteam.runners.config;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of taking a token for one of many clients, from several threads at once. It lives in the
+ * config package because {@link TokenBuckets} is package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class TokenBucketsBenchmark {
+
+  @Param({"1000", "1000000"})
+  private int clients;
+
+  private TokenBuckets tokenBuckets;
+  private String[] keys;
+
+  @Setup
+  public void setUp() {
+    tokenBuckets = new TokenBuckets(50, 100, clients);
+    keys = new String[clients];
+    for (int i = 0; i < clients; i++) {
+      keys[i] = "10." + (i >>> 16) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+    }
+  }
+
+  @Benchmark
+  public long tryAcquire() {
+    String client = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    return tokenBuckets.tryAcquire(client, System.nanoTime());
+  }
+}
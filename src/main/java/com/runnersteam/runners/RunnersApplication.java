@@ -6,10 +6,12 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.messaging.Processor;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableBinding(RunnerBinding.class)
 @SpringBootApplication
 @EnableJpaAuditing
+@EnableScheduling
 public class RunnersApplication {
 
 	public static void main(String[] args) {
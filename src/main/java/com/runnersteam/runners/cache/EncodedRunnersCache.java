@@ -0,0 +1,96 @@
+package com.runnersteam.runners.cache;
+
+import static java.util.stream.Collectors.toList;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.runnersteam.runners.model.Runner;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Collection;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Opt-in cache of the JSON encoding of runners by nickname, bounded by
+ * runners.encoded-cache.maximum-size bytes. An encoding is only reused for the very runner
+ * instance it was made from, so a runner reloaded into {@link RunnersCache} after a write is
+ * encoded again even if the invalidation raced with the encoding; invalidations also drop the
+ * encodings to free their memory early.
+ */
+@Component
+public class EncodedRunnersCache {
+
+  private static final int ENTRY_OVERHEAD = 64;
+
+  @Value("${runners.encoded-cache.enabled:false}")
+  private boolean enabled;
+
+  @Value("${runners.encoded-cache.maximum-size:64MB}")
+  private DataSize maximumSize;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  private Cache<String, Encoded> cache;
+
+  @PostConstruct
+  public void init() {
+    if (enabled) {
+      cache = Caffeine.newBuilder()
+          .maximumWeight(maximumSize.toBytes())
+          .<String, Encoded>weigher((nickname, encoded) ->
+              ENTRY_OVERHEAD + 2 * nickname.length() + encoded.json.length)
+          .recordStats()
+          .build();
+      CaffeineCacheMetrics.monitor(meterRegistry, cache, "encodedRunners");
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public byte[] encode(String nickname, Runner runner) {
+    String key = RunnersCache.key(nickname);
+    Encoded encoded = cache.getIfPresent(key);
+    if (encoded == null || encoded.runner != runner) {
+      encoded = new Encoded(runner, toJson(runner));
+      cache.put(key, encoded);
+    }
+    return encoded.json;
+  }
+
+  void invalidateAll(Collection<String> nicknames) {
+    if (enabled) {
+      cache.invalidateAll(nicknames.stream().map(RunnersCache::key).collect(toList()));
+    }
+  }
+
+  private byte[] toJson(Runner runner) {
+    try {
+      return objectMapper.writeValueAsBytes(runner);
+    } catch (JsonProcessingException jsonProcessingException) {
+      throw new IllegalStateException(jsonProcessingException);
+    }
+  }
+
+  private static final class Encoded {
+
+    private final Runner runner;
+    private final byte[] json;
+
+    private Encoded(Runner runner, byte[] json) {
+      this.runner = runner;
+      this.json = json;
+    }
+  }
+}
@@ -0,0 +1,189 @@
+package com.runnersteam.runners.cache;
+
+import static java.util.stream.Collectors.toList;
+
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerOperation;
+import com.runnersteam.runners.repository.RunnerChangesRepository;
+import com.runnersteam.runners.repository.RunnersRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Opt-in write-behind of unconditional last race updates. Updates are coalesced per nickname,
+ * whatever its case, in striped maps and written as one JDBC batch every
+ * {@code runners.write-behind.flush-interval} milliseconds and on shutdown, never on a request
+ * thread. At most {@code runners.write-behind.max-pending} nicknames are pending: beyond that
+ * {@link #offer} refuses new nicknames and the caller writes them itself. A pending update stays
+ * visible through {@link #pending} until it has been written and the cached runner invalidated;
+ * if the write to its shard fails it stays pending for the next flush.
+ */
+@Component
+@Slf4j
+public class LastRaceWriteBuffer {
+
+  @Value("${runners.write-behind.enabled:false}")
+  private boolean enabled;
+
+  @Value("${runners.write-behind.stripes:16}")
+  private int stripeCount;
+
+  @Value("${runners.write-behind.max-pending:10000}")
+  private int maxPending;
+
+  @Autowired
+  private RunnersRepository runnersRepository;
+
+  @Autowired
+  private RunnersCache runnersCache;
+
+  @Autowired
+  private RunnerChangesRepository runnerChangesRepository;
+
+  @Autowired
+  private TransactionTemplate transactionTemplate;
+
+  @Autowired
+  private RunnerShards runnerShards;
+
+  private List<Map<String, Runner>> stripes;
+  private final AtomicInteger pendingCount = new AtomicInteger();
+  private final Object flushLock = new Object();
+
+  @PostConstruct
+  public void init() {
+    stripes = new ArrayList<>(stripeCount);
+    for (int i = 0; i < stripeCount; i++) {
+      stripes.add(new HashMap<>());
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Buffers the update, replacing the one pending for the same nickname, unless the buffer
+   * already holds max-pending other nicknames.
+   *
+   * @return false if the update was not buffered and must be written right away
+   */
+  public boolean offer(Runner update) {
+    String key = RunnersCache.key(update.getNickname());
+    Map<String, Runner> stripe = stripeFor(key);
+    synchronized (stripe) {
+      if (stripe.containsKey(key)) {
+        stripe.put(key, update);
+        return true;
+      }
+      if (!reserve()) {
+        return false;
+      }
+      stripe.put(key, update);
+      return true;
+    }
+  }
+
+  private boolean reserve() {
+    int pending;
+    do {
+      pending = pendingCount.get();
+      if (pending >= maxPending) {
+        return false;
+      }
+    } while (!pendingCount.compareAndSet(pending, pending + 1));
+    return true;
+  }
+
+  public Optional<Runner> pending(String nickname) {
+    String key = RunnersCache.key(nickname);
+    Map<String, Runner> stripe = stripeFor(key);
+    synchronized (stripe) {
+      return Optional.ofNullable(stripe.get(key));
+    }
+  }
+
+  public Optional<Runner> discard(String nickname) {
+    String key = RunnersCache.key(nickname);
+    Map<String, Runner> stripe = stripeFor(key);
+    Runner removed;
+    synchronized (stripe) {
+      removed = stripe.remove(key);
+    }
+    if (removed != null) {
+      pendingCount.decrementAndGet();
+    }
+    return Optional.ofNullable(removed);
+  }
+
+  @Scheduled(fixedDelayString = "${runners.write-behind.flush-interval:200}")
+  public void scheduledFlush() {
+    if (enabled) {
+      flush();
+    }
+  }
+
+  @PreDestroy
+  public void flush() {
+    synchronized (flushLock) {
+      List<Runner> updates = new ArrayList<>();
+      for (Map<String, Runner> stripe : stripes) {
+        synchronized (stripe) {
+          updates.addAll(stripe.values());
+        }
+      }
+      if (updates.isEmpty()) {
+        return;
+      }
+      List<Runner> written = new ArrayList<>();
+      runnerShards.byShard(updates, Runner::getNickname).forEach((shard, shardUpdates) -> {
+        try {
+          write(shard, shardUpdates);
+          written.addAll(shardUpdates);
+        } catch (RuntimeException runtimeException) {
+          log.error("flush-" + shardUpdates.size() + " kept pending", runtimeException);
+        }
+      });
+      if (written.isEmpty()) {
+        return;
+      }
+      runnersCache.invalidateAll(written.stream().map(Runner::getNickname).collect(toList()));
+      for (Runner update : written) {
+        String key = RunnersCache.key(update.getNickname());
+        Map<String, Runner> stripe = stripeFor(key);
+        boolean removed;
+        synchronized (stripe) {
+          removed = stripe.remove(key, update);
+        }
+        if (removed) {
+          pendingCount.decrementAndGet();
+        }
+      }
+    }
+  }
+
+  private void write(int shard, List<Runner> updates) {
+    List<String> nicknames = updates.stream().map(Runner::getNickname).collect(toList());
+    runnerShards.runOnShard(shard, () -> transactionTemplate.executeWithoutResult(status -> {
+      runnersRepository.updateLastRaces(updates);
+      runnerChangesRepository.insertAll(RunnerOperation.UPDATE, nicknames);
+    }));
+  }
+
+  private Map<String, Runner> stripeFor(String key) {
+    return stripes.get(Math.floorMod(key.hashCode(), stripes.size()));
+  }
+}
@@ -0,0 +1,176 @@
+package com.runnersteam.runners.cache;
+
+import static com.runnersteam.runners.metrics.RunnersMetricsAspect.MESSAGING_TIMER;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.springframework.messaging.support.MessageBuilder.withPayload;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.runnersteam.runners.messaging.RunnerBinding;
+import com.runnersteam.runners.messaging.RunnerInvalidationEvent;
+import com.runnersteam.runners.model.Runner;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+/**
+ * Bounded near cache of runners by nickname, compared case-insensitively like the database does.
+ * Lookups that found nothing are cached too, so every write must invalidate the nickname;
+ * invalidations are broadcast to the other instances through {@code runnerInvalidationOutput}
+ * once the surrounding transaction, if any, commits. Invalidations for new runners also carry
+ * their emails, for the other instances' {@link RunnersExistenceFilter}. When reads are served by
+ * lagging replicas, a lookup right after the invalidation can cache the old runner again, so
+ * {@code runners.cache.reinvalidate-after}, 2 seconds by default when replicas are configured,
+ * repeats the local invalidation of both caches once the replicas have caught up.
+ */
+@Component
+public class RunnersCache {
+
+  private static final Duration DEFAULT_REPLICATION_LAG = Duration.ofSeconds(2);
+
+  @Value("${runners.cache.maximum-size:10000}")
+  private long maximumSize;
+
+  @Value("${runners.cache.expire-after-write:5m}")
+  private Duration expireAfterWrite;
+
+  @Value("${runners.cache.reinvalidate-after:#{null}}")
+  private Duration reinvalidateAfter;
+
+  @Value("${runners.datasource.replica-urls:}")
+  private String replicaUrls;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private MessageChannel runnerInvalidationOutput;
+
+  @Autowired
+  private EncodedRunnersCache encodedRunnersCache;
+
+  private Cache<String, Optional<Runner>> cache;
+
+  @PostConstruct
+  public void init() {
+    boolean replicated = StringUtils.hasText(replicaUrls);
+    if (reinvalidateAfter == null) {
+      reinvalidateAfter = replicated ? DEFAULT_REPLICATION_LAG : Duration.ZERO;
+    } else if (replicated && reinvalidateAfter.isZero()) {
+      throw new IllegalStateException("runners.cache.reinvalidate-after must cover the "
+          + "replication lag when runners.datasource.replica-urls is set");
+    }
+    cache = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(expireAfterWrite)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "runners");
+  }
+
+  public Optional<Runner> get(String nickname, Function<String, Optional<Runner>> loader) {
+    return cache.get(key(nickname), key -> loader.apply(nickname));
+  }
+
+  /**
+   * Returns the runners of {@code nicknames} keyed as requested. The loader gets the missing
+   * nicknames as first requested, once per case-insensitive key.
+   */
+  public Map<String, Optional<Runner>> getAll(Collection<String> nicknames,
+      Function<Set<String>, Map<String, Optional<Runner>>> loader) {
+    Map<String, String> byKey = new LinkedHashMap<>();
+    nicknames.forEach(nickname -> byKey.putIfAbsent(key(nickname), nickname));
+    Map<String, Optional<Runner>> cached = cache.getAll(byKey.keySet(), missing -> {
+      Set<String> toLoad = new LinkedHashSet<>();
+      missing.forEach(key -> toLoad.add(byKey.get(key)));
+      Map<String, Optional<Runner>> loaded = new HashMap<>();
+      loader.apply(toLoad).forEach((nickname, runner) -> loaded.put(key(nickname), runner));
+      return loaded;
+    });
+    Map<String, Optional<Runner>> found = new HashMap<>();
+    nicknames.forEach(nickname ->
+        found.put(nickname, cached.getOrDefault(key(nickname), Optional.empty())));
+    return found;
+  }
+
+  public Optional<Runner> getIfPresent(String nickname) {
+    Optional<Runner> cached = cache.getIfPresent(key(nickname));
+    return cached == null ? Optional.empty() : cached;
+  }
+
+  public void invalidate(String nickname) {
+    invalidateAll(List.of(nickname));
+  }
+
+  public void invalidateAll(Collection<String> nicknames) {
+    if (!nicknames.isEmpty()) {
+      broadcastAfterCommit(new RunnerInvalidationEvent(new ArrayList<>(nicknames), List.of()));
+    }
+  }
+
+  public void registered(Collection<Runner> runners) {
+    if (!runners.isEmpty()) {
+      broadcastAfterCommit(new RunnerInvalidationEvent(
+          runners.stream().map(Runner::getNickname).collect(toList()),
+          runners.stream().map(Runner::getEmail).collect(toList())));
+    }
+  }
+
+  public void invalidateLocally(Collection<String> nicknames) {
+    List<String> keys = nicknames.stream().map(RunnersCache::key).collect(toList());
+    cache.invalidateAll(keys);
+    encodedRunnersCache.invalidateAll(keys);
+    if (!reinvalidateAfter.isZero()) {
+      CompletableFuture.delayedExecutor(reinvalidateAfter.toMillis(), MILLISECONDS)
+          .execute(() -> {
+            cache.invalidateAll(keys);
+            encodedRunnersCache.invalidateAll(keys);
+          });
+    }
+  }
+
+  private void broadcastAfterCommit(RunnerInvalidationEvent event) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              broadcast(event);
+            }
+          });
+    } else {
+      broadcast(event);
+    }
+  }
+
+  static String key(String nickname) {
+    return nickname.toLowerCase(Locale.ROOT);
+  }
+
+  private void broadcast(RunnerInvalidationEvent event) {
+    invalidateLocally(event.getNicknames());
+    meterRegistry.timer(MESSAGING_TIMER, "channel", RunnerBinding.INVALIDATION_OUTPUT).record(() ->
+        runnerInvalidationOutput.send(withPayload(event).build()));
+  }
+}
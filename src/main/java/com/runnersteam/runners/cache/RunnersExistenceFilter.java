@@ -0,0 +1,143 @@
+package com.runnersteam.runners.cache;
+
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerKey;
+import com.runnersteam.runners.repository.RunnersRepository;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Bloom filters over every nickname and email, compared case-insensitively like the database
+ * does. A key the filters exclude definitely did not exist when they were last rebuilt and has
+ * not been added since, so reads can skip the lookup; writes always go to the database. Keys are
+ * added before their runner is inserted here and from invalidation events for runners created
+ * elsewhere, and the filters are rebuilt from the runners table every rebuild-interval, sized
+ * from its row count, so a missed invalidation event only hides a runner until the next rebuild.
+ * The filters of the previous build are kept and consulted until the next one, so keys added
+ * while a rebuild streams the table are not lost, at the cost of about twice the false positive
+ * probability. Nothing is excluded until the filters have been loaded.
+ */
+@Component
+@Slf4j
+public class RunnersExistenceFilter {
+
+  private static final long MIN_EXPECTED_INSERTIONS = 1024;
+
+  @Value("${runners.existence-filter.false-positive-probability:0.01}")
+  private double falsePositiveProbability;
+
+  @Autowired
+  private RunnersRepository runnersRepository;
+
+  @Autowired
+  private RunnerShards runnerShards;
+
+  private volatile Filters current;
+  private volatile Filters previous;
+  private volatile Filters next;
+
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(fixedDelayString = "${runners.existence-filter.rebuild-interval:600000}",
+      initialDelayString = "${runners.existence-filter.rebuild-interval:600000}")
+  @Transactional(readOnly = true)
+  public synchronized void rebuild() {
+    long count = 0;
+    for (int shard = 0; shard < runnerShards.count(); shard++) {
+      count += runnerShards.onShard(shard, runnersRepository::count);
+    }
+    // Twice the current count leaves room for the registrations until the next rebuild.
+    Filters rebuilt =
+        new Filters(Math.max(MIN_EXPECTED_INSERTIONS, 2 * count), falsePositiveProbability);
+    next = rebuilt;
+    long loaded = 0;
+    for (int shard = 0; shard < runnerShards.count(); shard++) {
+      loaded += runnerShards.onShard(shard, () -> loadShard(rebuilt));
+    }
+    previous = current;
+    current = rebuilt;
+    next = null;
+    log.info("rebuild-" + loaded + " runners");
+  }
+
+  private long loadShard(Filters filters) {
+    long loaded = 0;
+    try (Stream<RunnerKey> keys = runnersRepository.streamKeys()) {
+      for (Iterator<RunnerKey> iterator = keys.iterator(); iterator.hasNext(); loaded++) {
+        RunnerKey key = iterator.next();
+        filters.put(key.getNickname(), key.getEmail());
+      }
+    }
+    return loaded;
+  }
+
+  public boolean excludesNickname(String nickname) {
+    return nickname != null && excludes(filters -> filters.nicknames, key(nickname));
+  }
+
+  public boolean excludesEmail(String email) {
+    return email != null && excludes(filters -> filters.emails, key(email));
+  }
+
+  private boolean excludes(Function<Filters, BloomFilter> filter, String key) {
+    Filters currentFilters = current;
+    Filters previousFilters = previous;
+    return currentFilters != null && !filter.apply(currentFilters).mightContain(key)
+        && (previousFilters == null || !filter.apply(previousFilters).mightContain(key));
+  }
+
+  public void put(Runner runner) {
+    put(runner.getNickname(), runner.getEmail());
+  }
+
+  public void putAll(Collection<String> newNicknames, Collection<String> newEmails) {
+    newNicknames.forEach(nickname -> put(nickname, null));
+    newEmails.forEach(email -> put(null, email));
+  }
+
+  private void put(String nickname, String email) {
+    Filters currentFilters = current;
+    if (currentFilters != null) {
+      currentFilters.put(nickname, email);
+    }
+    Filters nextFilters = next;
+    if (nextFilters != null) {
+      nextFilters.put(nickname, email);
+    }
+  }
+
+  private static String key(String value) {
+    return value.toLowerCase(Locale.ROOT);
+  }
+
+  private static class Filters {
+
+    private final BloomFilter nicknames;
+    private final BloomFilter emails;
+
+    Filters(long expectedInsertions, double falsePositiveProbability) {
+      nicknames = new BloomFilter(expectedInsertions, falsePositiveProbability);
+      emails = new BloomFilter(expectedInsertions, falsePositiveProbability);
+    }
+
+    void put(String nickname, String email) {
+      if (nickname != null) {
+        nicknames.put(key(nickname));
+      }
+      if (email != null) {
+        emails.put(key(email));
+      }
+    }
+  }
+}
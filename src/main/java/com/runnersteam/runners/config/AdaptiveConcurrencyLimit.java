@@ -0,0 +1,79 @@
+package com.runnersteam.runners.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit adjusted from the latency of completed requests, after the gradient
+ * algorithm of Netflix concurrency-limits. A short and a long exponential average of the latency
+ * are compared: while they agree the limit grows by a small queue allowance, and when the short
+ * one rises above the long one times the tolerance the limit shrinks in proportion, down to half
+ * per sample. The long average slowly follows a lasting change of latency. The limit does not
+ * grow while fewer than half of it are in use, and writes may only take the write share of it,
+ * so reads always keep some room.
+ */
+final class AdaptiveConcurrencyLimit {
+
+  private static final double TOLERANCE = 1.5;
+  private static final double SMOOTHING = 0.2;
+  private static final int SHORT_WINDOW = 10;
+  private static final int LONG_WINDOW = 600;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double writeShare;
+  private final AtomicInteger inflight = new AtomicInteger();
+
+  private volatile double limit;
+  private double shortRtt;
+  private double longRtt;
+
+  AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double writeShare) {
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.writeShare = writeShare;
+  }
+
+  int getLimit() {
+    return (int) limit;
+  }
+
+  int getInflight() {
+    return inflight.get();
+  }
+
+  boolean tryAcquire(boolean read) {
+    int max = read ? (int) limit : Math.max(1, (int) (limit * writeShare));
+    int current;
+    do {
+      current = inflight.get();
+      if (current >= max) {
+        return false;
+      }
+    } while (!inflight.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  void release(long rttNanos) {
+    onSample(rttNanos, inflight.getAndDecrement());
+  }
+
+  private synchronized void onSample(long rttNanos, int inflightAtRelease) {
+    if (longRtt == 0) {
+      shortRtt = rttNanos;
+      longRtt = rttNanos;
+    }
+    shortRtt += (rttNanos - shortRtt) / SHORT_WINDOW;
+    longRtt += (rttNanos - longRtt) / LONG_WINDOW;
+    if (longRtt / shortRtt > 2) {
+      longRtt *= 0.95;
+    }
+    if (inflightAtRelease < limit / 2) {
+      return;
+    }
+    double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+    double newLimit = limit * gradient + Math.sqrt(limit);
+    newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+  }
+}
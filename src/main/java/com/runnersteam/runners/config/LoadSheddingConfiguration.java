@@ -0,0 +1,39 @@
+package com.runnersteam.runners.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Puts the {@link LoadSheddingFilter} in front of the servlet API when
+ * runners.concurrency.enabled is set. It runs after the metrics filter, so shed requests are
+ * still recorded in http.server.requests.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(value = "runners.concurrency.enabled", havingValue = "true")
+public class LoadSheddingConfiguration {
+
+  @Bean
+  public FilterRegistrationBean<LoadSheddingFilter> loadSheddingFilter(
+      @Value("${runners.concurrency.initial-limit:20}") int initialLimit,
+      @Value("${runners.concurrency.min-limit:4}") int minLimit,
+      @Value("${runners.concurrency.max-limit:200}") int maxLimit,
+      @Value("${runners.concurrency.write-share:0.8}") double writeShare,
+      @Value("${runners.concurrency.retry-after:1s}") Duration retryAfter,
+      MeterRegistry meterRegistry) {
+    AdaptiveConcurrencyLimit limit =
+        new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, writeShare);
+    FilterRegistrationBean<LoadSheddingFilter> registration = new FilterRegistrationBean<>(
+        new LoadSheddingFilter(limit, retryAfter, meterRegistry));
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+    return registration;
+  }
+}
@@ -0,0 +1,71 @@
+package com.runnersteam.runners.config;
+
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Sheds load once the adaptive concurrency limit is reached, answering 503 with Retry-After right
+ * away instead of queueing behind a slow database. Streaming endpoints, which hold their
+ * requests open by design, and the actuator are not limited.
+ */
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+  public static final String LIMIT_GAUGE = "runners.concurrency.limit";
+  public static final String INFLIGHT_GAUGE = "runners.concurrency.inflight";
+  public static final String REJECTED_COUNTER = "runners.concurrency.rejected";
+
+  private static final Set<String> UNLIMITED_PATHS = Set.of("/export", "/import", "/changes");
+  private static final String REJECTED_BODY =
+      "{\"errorMessage\":\"Too many concurrent requests, retry later\"}";
+
+  private final AdaptiveConcurrencyLimit limit;
+  private final String retryAfterSeconds;
+  private final MeterRegistry meterRegistry;
+
+  LoadSheddingFilter(AdaptiveConcurrencyLimit limit, Duration retryAfter,
+      MeterRegistry meterRegistry) {
+    this.limit = limit;
+    this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.toSeconds()));
+    this.meterRegistry = meterRegistry;
+    Gauge.builder(LIMIT_GAUGE, limit, AdaptiveConcurrencyLimit::getLimit).register(meterRegistry);
+    Gauge.builder(INFLIGHT_GAUGE, limit, AdaptiveConcurrencyLimit::getInflight)
+        .register(meterRegistry);
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    String path = request.getServletPath();
+    if (UNLIMITED_PATHS.contains(path) || RunnerRoutes.isActuator(path)) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    if (!limit.tryAcquire(ReadYourWritesFilter.isRead(request))) {
+      meterRegistry.counter(REJECTED_COUNTER, "method", request.getMethod(),
+          "uri", RunnerRoutes.route(path)).increment();
+      response.setStatus(SERVICE_UNAVAILABLE.value());
+      response.setHeader(RETRY_AFTER, retryAfterSeconds);
+      response.setContentType(APPLICATION_JSON_VALUE);
+      response.getWriter().write(REJECTED_BODY);
+      return;
+    }
+    long start = System.nanoTime();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      limit.release(System.nanoTime() - start);
+    }
+  }
+}
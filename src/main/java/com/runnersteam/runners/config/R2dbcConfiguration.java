@@ -0,0 +1,45 @@
+package com.runnersteam.runners.config;
+
+import static io.r2dbc.spi.ConnectionFactoryOptions.PASSWORD;
+import static io.r2dbc.spi.ConnectionFactoryOptions.USER;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.connectionfactory.R2dbcTransactionManager;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+/**
+ * R2DBC access for the reactive profile. The JPA transaction manager stays the only
+ * TransactionManager bean, so {@code @Transactional} keeps resolving to it; reactive code
+ * demarcates its transactions through the {@link TransactionalOperator} instead.
+ */
+@Configuration
+@Profile("reactive")
+public class R2dbcConfiguration {
+
+  @Bean
+  public ConnectionFactory connectionFactory(@Value("${runners.r2dbc.url}") String url,
+      @Value("${runners.r2dbc.username}") String username,
+      @Value("${runners.r2dbc.password}") String password) {
+    return ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+        .option(USER, username)
+        .option(PASSWORD, password)
+        .build());
+  }
+
+  @Bean
+  public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+    return DatabaseClient.create(connectionFactory);
+  }
+
+  @Bean
+  public TransactionalOperator transactionalOperator(ConnectionFactory connectionFactory) {
+    return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+  }
+}
@@ -0,0 +1,70 @@
+package com.runnersteam.runners.config;
+
+import static java.util.stream.Collectors.toMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.TaskScheduler;
+
+/**
+ * Puts the {@link RateLimitFilter} in front of the servlet API when runners.rate-limit.enabled is
+ * set. Every client may make runners.rate-limit.requests-per-second requests, in bursts of up to
+ * runners.rate-limit.burst-seconds worth of them; runners.rate-limit.routes[route] gives a route
+ * its own rate. Only the keys in runners.rate-limit.api-keys identify a client, other requests
+ * are limited by address. It runs before the {@link LoadSheddingFilter}, so limited clients do
+ * not take concurrency from the others. Full buckets are dropped every second on the task
+ * scheduler.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(value = "runners.rate-limit.enabled", havingValue = "true")
+public class RateLimitConfiguration {
+
+  private static final Duration SWEEP_INTERVAL = Duration.ofSeconds(1);
+
+  @Bean
+  public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(
+      @Value("${runners.rate-limit.requests-per-second:50}") double requestsPerSecond,
+      @Value("${runners.rate-limit.burst-seconds:2}") double burstSeconds,
+      @Value("${runners.rate-limit.max-clients:200000}") int maxClients,
+      @Value("${runners.rate-limit.api-key-header:X-API-Key}") String apiKeyHeader,
+      @Value("${runners.rate-limit.api-keys:}") Set<String> apiKeys,
+      Environment environment, MeterRegistry meterRegistry, TaskScheduler taskScheduler) {
+    Map<String, Double> routeRates = Binder.get(environment)
+        .bind("runners.rate-limit.routes", Bindable.mapOf(String.class, Double.class))
+        .orElse(Map.of());
+    for (String route : routeRates.keySet()) {
+      if (!RunnerRoutes.isRoute(route)) {
+        throw new IllegalStateException("Unknown route in runners.rate-limit.routes " + route);
+      }
+    }
+    Map<String, TokenBuckets> routeBuckets = routeRates.entrySet().stream().collect(toMap(
+        Map.Entry::getKey, entry -> buckets(entry.getValue(), burstSeconds, maxClients)));
+    RateLimitFilter filter = new RateLimitFilter(
+        buckets(requestsPerSecond, burstSeconds, maxClients), routeBuckets, apiKeyHeader, apiKeys,
+        meterRegistry);
+    taskScheduler.scheduleWithFixedDelay(filter::sweep, SWEEP_INTERVAL);
+    FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+    return registration;
+  }
+
+  private static TokenBuckets buckets(double requestsPerSecond, double burstSeconds,
+      int maxClients) {
+    return new TokenBuckets(requestsPerSecond, (int) Math.ceil(requestsPerSecond * burstSeconds),
+        maxClients);
+  }
+}
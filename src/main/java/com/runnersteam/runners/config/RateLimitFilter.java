@@ -0,0 +1,91 @@
+package com.runnersteam.runners.config;
+
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Rate limits each client, identified by its API key header when the key is one of the known
+ * keys or else by its address, with token buckets per route. Unknown keys are ignored, so made-up
+ * keys can neither dodge the limit nor fill the buckets. Routes without their own limit share the
+ * default buckets. Limited requests get 429 with the RateLimit-* headers of the IETF draft and
+ * Retry-After. The actuator is not limited.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+  public static final String REJECTED_COUNTER = "runners.rate-limit.rejected";
+
+  static final String LIMIT_HEADER = "RateLimit-Limit";
+  static final String REMAINING_HEADER = "RateLimit-Remaining";
+  static final String RESET_HEADER = "RateLimit-Reset";
+
+  private static final String REJECTED_BODY =
+      "{\"errorMessage\":\"Too many requests, retry later\"}";
+
+  private final TokenBuckets defaultBuckets;
+  private final Map<String, TokenBuckets> routeBuckets;
+  private final String apiKeyHeader;
+  private final Set<String> apiKeys;
+  private final MeterRegistry meterRegistry;
+
+  RateLimitFilter(TokenBuckets defaultBuckets, Map<String, TokenBuckets> routeBuckets,
+      String apiKeyHeader, Set<String> apiKeys, MeterRegistry meterRegistry) {
+    this.defaultBuckets = defaultBuckets;
+    this.routeBuckets = routeBuckets;
+    this.apiKeyHeader = apiKeyHeader;
+    this.apiKeys = apiKeys;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    String path = request.getServletPath();
+    if (RunnerRoutes.isActuator(path)) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    String route = RunnerRoutes.route(path);
+    TokenBuckets buckets = routeBuckets.getOrDefault(route, defaultBuckets);
+    long waitNanos = buckets.tryAcquire(client(request), System.nanoTime());
+    if (waitNanos == 0) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    meterRegistry.counter(REJECTED_COUNTER, "method", request.getMethod(), "uri", route)
+        .increment();
+    String waitSeconds = Long.toString(Math.max(1,
+        (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+    response.setStatus(TOO_MANY_REQUESTS.value());
+    response.setHeader(LIMIT_HEADER, Integer.toString(buckets.getCapacity()));
+    response.setHeader(REMAINING_HEADER, "0");
+    response.setHeader(RESET_HEADER, waitSeconds);
+    response.setHeader(RETRY_AFTER, waitSeconds);
+    response.setContentType(APPLICATION_JSON_VALUE);
+    response.getWriter().write(REJECTED_BODY);
+  }
+
+  /** Drops the full buckets, see {@link TokenBuckets#sweep}. */
+  void sweep() {
+    long now = System.nanoTime();
+    defaultBuckets.sweep(now);
+    routeBuckets.values().forEach(buckets -> buckets.sweep(now));
+  }
+
+  private String client(HttpServletRequest request) {
+    String apiKey = request.getHeader(apiKeyHeader);
+    return apiKey != null && apiKeys.contains(apiKey)
+        ? "key:" + apiKey : "address:" + request.getRemoteAddr();
+  }
+}
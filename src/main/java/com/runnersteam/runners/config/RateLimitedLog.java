@@ -0,0 +1,34 @@
+package com.runnersteam.runners.config;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lets at most one caller log per interval, the others only count as suppressed.
+ */
+final class RateLimitedLog {
+
+  private final long intervalNanos;
+  private final AtomicLong nextPermit;
+  private final LongAdder suppressed = new LongAdder();
+
+  RateLimitedLog(Duration interval) {
+    intervalNanos = interval.toNanos();
+    nextPermit = new AtomicLong(System.nanoTime());
+  }
+
+  /**
+   * Returns the number of calls suppressed since the last permitted one, or -1 when this call is
+   * suppressed itself.
+   */
+  long tryAcquire() {
+    long now = System.nanoTime();
+    long permit = nextPermit.get();
+    if (now - permit < 0 || !nextPermit.compareAndSet(permit, now + intervalNanos)) {
+      suppressed.increment();
+      return -1;
+    }
+    return suppressed.sumThenReset();
+  }
+}
@@ -0,0 +1,65 @@
+package com.runnersteam.runners.config;
+
+import static java.util.stream.Collectors.toList;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Replaces the auto-configured pool with a primary pool plus one pool per
+ * {@code runners.datasource.replica-urls} entry, all sharing the {@code spring.datasource.*}
+ * credentials and {@code spring.datasource.hikari.*} settings. Read-only transactions go to the
+ * replicas, see {@link ReadWriteRoutingDataSource}.
+ */
+@Configuration
+@ConditionalOnProperty("runners.datasource.replica-urls")
+public class ReadReplicaConfiguration {
+
+  @Bean
+  public DataSource dataSource(DataSourceProperties dataSourceProperties,
+      @Value("${runners.datasource.replica-urls}") List<String> replicaUrls,
+      Environment environment, MeterRegistry meterRegistry) {
+    DataSource primary = pool("primary", dataSourceProperties.determineUrl(), dataSourceProperties,
+        environment, meterRegistry);
+    List<DataSource> replicas = IntStream.range(0, replicaUrls.size())
+        .mapToObj(index -> pool("replica-" + index, replicaUrls.get(index),
+            dataSourceProperties, environment, meterRegistry))
+        .collect(toList());
+    ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replicas);
+    routing.afterPropertiesSet();
+    return new LazyConnectionDataSourceProxy(routing);
+  }
+
+  @Bean
+  @ConditionalOnProperty("runners.datasource.read-your-writes-window")
+  public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+      @Value("${runners.datasource.read-your-writes-window}") Duration window) {
+    return new FilterRegistrationBean<>(new ReadYourWritesFilter(window));
+  }
+
+  private DataSource pool(String name, String url, DataSourceProperties dataSourceProperties,
+      Environment environment, MeterRegistry meterRegistry) {
+    HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder()
+        .type(HikariDataSource.class)
+        .url(url)
+        .build();
+    Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+    pool.setPoolName(name);
+    pool.setMetricRegistry(meterRegistry);
+    return pool;
+  }
+}
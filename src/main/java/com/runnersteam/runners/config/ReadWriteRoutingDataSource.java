@@ -0,0 +1,51 @@
+package com.runnersteam.runners.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections of read-only transactions round robin to the replicas and everything else to
+ * the primary. The transaction is only known to be read-only once it has started, so this must
+ * sit behind a {@code LazyConnectionDataSourceProxy} that fetches the connection on first use.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+  private static final String PRIMARY = "primary";
+  private static final ThreadLocal<Boolean> pinnedToPrimary = new ThreadLocal<>();
+
+  private final int replicas;
+  private final AtomicInteger nextReplica = new AtomicInteger();
+
+  public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+    this.replicas = replicas.size();
+    Map<Object, Object> targets = new HashMap<>();
+    targets.put(PRIMARY, primary);
+    for (int index = 0; index < replicas.size(); index++) {
+      targets.put(index, replicas.get(index));
+    }
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(primary);
+  }
+
+  public static void pinToPrimary() {
+    pinnedToPrimary.set(true);
+  }
+
+  public static void unpin() {
+    pinnedToPrimary.remove();
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    if (replicas == 0 || pinnedToPrimary.get() != null
+        || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return PRIMARY;
+    }
+    return Math.floorMod(nextReplica.getAndIncrement(), replicas);
+  }
+}
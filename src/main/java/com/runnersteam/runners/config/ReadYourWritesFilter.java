@@ -0,0 +1,57 @@
+package com.runnersteam.runners.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * Pins a client to the primary for a while after it writes, so it reads its own writes even if
+ * the replicas lag behind. Writes hand out a short-lived cookie, reads carrying it skip the
+ * replicas.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+  static final String PRIMARY_COOKIE = "runners-primary";
+  private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+  private static final Set<String> READ_ONLY_POSTS = Set.of("/lookup");
+
+  private final int windowSeconds;
+
+  public ReadYourWritesFilter(Duration window) {
+    windowSeconds = (int) Math.max(1, window.toSeconds());
+  }
+
+  static boolean isRead(HttpServletRequest request) {
+    return SAFE_METHODS.contains(request.getMethod())
+        || READ_ONLY_POSTS.contains(request.getServletPath());
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    if (!isRead(request)) {
+      Cookie cookie = new Cookie(PRIMARY_COOKIE, "1");
+      cookie.setMaxAge(windowSeconds);
+      cookie.setPath("/");
+      cookie.setHttpOnly(true);
+      response.addCookie(cookie);
+      filterChain.doFilter(request, response);
+    } else if (WebUtils.getCookie(request, PRIMARY_COOKIE) != null) {
+      ReadWriteRoutingDataSource.pinToPrimary();
+      try {
+        filterChain.doFilter(request, response);
+      } finally {
+        ReadWriteRoutingDataSource.unpin();
+      }
+    } else {
+      filterChain.doFilter(request, response);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.runnersteam.runners.config;
+
+import java.util.Set;
+
+/**
+ * Maps a servlet path to the runners API route it belongs to, without allocating, so filters can
+ * apply per route settings and tag metrics before the dispatcher resolves the handler.
+ */
+final class RunnerRoutes {
+
+  static final String NICKNAME = "/{nickname}";
+  static final String NICKNAME_RESULTS = "/{nickname}/results";
+  static final Set<String> FIXED = Set.of("/", "/lookup", "/batch", "/results", "/export",
+      "/import", "/changes");
+
+  private static final String ACTUATOR_PATH = "/actuator/";
+  private static final String RESULTS_SUFFIX = "/results";
+
+  private RunnerRoutes() {
+  }
+
+  static boolean isActuator(String path) {
+    return path.startsWith(ACTUATOR_PATH);
+  }
+
+  static boolean isRoute(String route) {
+    return FIXED.contains(route) || NICKNAME.equals(route) || NICKNAME_RESULTS.equals(route);
+  }
+
+  static String route(String path) {
+    if (FIXED.contains(path)) {
+      return path;
+    }
+    return path.endsWith(RESULTS_SUFFIX) ? NICKNAME_RESULTS : NICKNAME;
+  }
+}
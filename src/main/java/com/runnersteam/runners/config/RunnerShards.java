@@ -0,0 +1,156 @@
+package com.runnersteam.runners.config;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs work against the shard owning a nickname, see {@link ShardingConfiguration}. When sharding
+ * is enabled, work on a shard other than the current one runs in a new transaction on a
+ * connection to that shard, so one transaction never spans shards; without sharding everything
+ * runs on the single database in the caller's transaction. The runner_emails directory, which
+ * keeps emails unique across shards, lives on {@link #DIRECTORY_SHARD}.
+ */
+@Component
+public class RunnerShards {
+
+  public static final int DIRECTORY_SHARD = 0;
+
+  @Autowired(required = false)
+  private ShardRing shardRing;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Value("${runners.sharding.scatter-threads:8}")
+  private int scatterThreads;
+
+  private TransactionTemplate shardTransaction;
+  private ExecutorService scatterExecutor;
+
+  @PostConstruct
+  public void init() {
+    if (isSharded()) {
+      shardTransaction = new TransactionTemplate(transactionManager);
+      shardTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+      scatterExecutor = Executors.newFixedThreadPool(scatterThreads);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (scatterExecutor != null) {
+      scatterExecutor.shutdown();
+    }
+  }
+
+  public boolean isSharded() {
+    return shardRing != null;
+  }
+
+  public int count() {
+    return isSharded() ? shardRing.size() : 1;
+  }
+
+  public int shardOf(String nickname) {
+    return isSharded() ? shardRing.shardFor(nickname) : 0;
+  }
+
+  public <T> T onShard(int shard, Supplier<T> work) {
+    Integer previous = ShardRoutingDataSource.currentShard();
+    if (!isSharded() || Integer.valueOf(shard).equals(previous)) {
+      return work.get();
+    }
+    ShardRoutingDataSource.selectShard(shard);
+    try {
+      return shardTransaction.execute(status -> work.get());
+    } finally {
+      ShardRoutingDataSource.selectShard(previous);
+    }
+  }
+
+  /**
+   * Runs {@code work} on the shard in a transaction of its own described by {@code transaction},
+   * whether sharding is enabled or not.
+   */
+  public <T> T inTransactionOnShard(int shard, TransactionTemplate transaction,
+      Supplier<T> work) {
+    Integer previous = ShardRoutingDataSource.currentShard();
+    if (isSharded()) {
+      ShardRoutingDataSource.selectShard(shard);
+    }
+    try {
+      return transaction.execute(status -> work.get());
+    } finally {
+      if (isSharded()) {
+        ShardRoutingDataSource.selectShard(previous);
+      }
+    }
+  }
+
+  public void runOnShard(int shard, Runnable work) {
+    onShard(shard, () -> {
+      work.run();
+      return null;
+    });
+  }
+
+  /**
+   * Runs {@code work} on every shard, concurrently when sharding is enabled, and returns the
+   * results in shard order.
+   */
+  public <T> List<T> onEachShard(IntFunction<T> work) {
+    if (!isSharded()) {
+      return List.of(work.apply(0));
+    }
+    List<CompletableFuture<T>> results = IntStream.range(0, count())
+        .mapToObj(shard -> CompletableFuture.supplyAsync(
+            () -> onShard(shard, () -> work.apply(shard)), scatterExecutor))
+        .collect(toList());
+    try {
+      return results.stream().map(CompletableFuture::join).collect(toList());
+    } catch (CompletionException completionException) {
+      if (completionException.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) completionException.getCause();
+      }
+      throw completionException;
+    }
+  }
+
+  /**
+   * Groups {@code items} by the shard of their nickname, keeping their order within each shard.
+   * Without sharding everything, even nothing, goes to shard 0.
+   */
+  public <T> Map<Integer, List<T>> byShard(Collection<T> items, Function<T, String> nickname) {
+    Map<Integer, List<T>> byShard = new TreeMap<>();
+    if (!isSharded()) {
+      byShard.put(0, new ArrayList<>(items));
+      return byShard;
+    }
+    for (T item : items) {
+      byShard.computeIfAbsent(shardOf(nickname.apply(item)), shard -> new ArrayList<>())
+          .add(item);
+    }
+    return byShard;
+  }
+}
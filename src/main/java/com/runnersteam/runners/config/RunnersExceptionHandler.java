@@ -2,38 +2,94 @@ package com.runnersteam.runners.config;
 
 import static org.springframework.http.HttpStatus.CONFLICT;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
 
 import com.runnersteam.runners.exception.ExistingRunnerException;
 import com.runnersteam.runners.exception.RunnerNotFoundException;
+import com.runnersteam.runners.exception.RunnerVersionMismatchException;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestControllerAdvice
 @Slf4j
 public class RunnersExceptionHandler {
 
+  public static final String OUTCOMES_COUNTER = "runners.outcomes";
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Value("${runners.errors.expected-log-interval:1s}")
+  private Duration expectedLogInterval;
+
+  private final Map<String, RateLimitedLog> expectedLogs = new ConcurrentHashMap<>();
+
   @ExceptionHandler(value = RunnerNotFoundException.class)
   public ResponseEntity<ErrorResponse> handleRunnerNotFound
       (RunnerNotFoundException runnerMailNotFoundException) {
-    log.error("", runnerMailNotFoundException);
+    expectedOutcome("not_found", runnerMailNotFoundException);
     return ResponseEntity.notFound().build();
   }
 
   @ExceptionHandler(value = ExistingRunnerException.class)
   public ResponseEntity<ErrorResponse> handleExistingRunnerException(
       ExistingRunnerException existingRunnerException) {
-    log.error("", existingRunnerException);
+    expectedOutcome("duplicate", existingRunnerException);
     return ResponseEntity.status(CONFLICT).body(
         new ErrorResponse(existingRunnerException.getMessage()));
   }
 
+  @ExceptionHandler(value = RunnerVersionMismatchException.class)
+  public ResponseEntity<ErrorResponse> handleRunnerVersionMismatch(
+      RunnerVersionMismatchException runnerVersionMismatchException) {
+    expectedOutcome("version_mismatch", runnerVersionMismatchException);
+    return ResponseEntity.status(PRECONDITION_FAILED).body(
+        new ErrorResponse(runnerVersionMismatchException.getMessage()));
+  }
+
+  @ExceptionHandler(value = ResponseStatusException.class)
+  public ResponseEntity<ErrorResponse> handleResponseStatus(
+      ResponseStatusException responseStatusException) {
+    expectedOutcome(responseStatusException.getStatus().name().toLowerCase(Locale.ROOT),
+        responseStatusException);
+    return ResponseEntity.status(responseStatusException.getStatus()).body(
+        new ErrorResponse(responseStatusException.getReason()));
+  }
+
   @ExceptionHandler
   public ResponseEntity<ErrorResponse> handleInternalError(Exception exception) {
     log.error("", exception);
+    countOutcome("error");
     return ResponseEntity.status(INTERNAL_SERVER_ERROR).body(
         new ErrorResponse(exception.getMessage())
     );
   }
+
+  /**
+   * Not found, duplicate and version mismatch are normal answers, not failures: they carry no
+   * stack trace and only a sample of them is logged, so a burst of them cannot saturate logging.
+   */
+  private void expectedOutcome(String outcome, RuntimeException exception) {
+    countOutcome(outcome);
+    long suppressed = expectedLogs
+        .computeIfAbsent(outcome, key -> new RateLimitedLog(expectedLogInterval))
+        .tryAcquire();
+    if (suppressed >= 0) {
+      log.info("{}: {} ({} similar suppressed)", outcome, exception.getMessage(), suppressed);
+    }
+  }
+
+  private void countOutcome(String outcome) {
+    meterRegistry.counter(OUTCOMES_COUNTER, "outcome", outcome).increment();
+  }
 }
@@ -0,0 +1,59 @@
+package com.runnersteam.runners.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring placing lowercased nicknames on shards. Each shard owns
+ * {@code virtualNodes} points derived from its index only, so adding a shard moves roughly
+ * {@code 1 / shards} of the runners, all of them to the new shard.
+ */
+public class ShardRing {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private final int shards;
+  private final NavigableMap<Long, Integer> points = new TreeMap<>();
+
+  public ShardRing(int shards, int virtualNodes) {
+    if (shards < 1 || virtualNodes < 1) {
+      throw new IllegalArgumentException("A ring needs at least one shard and one virtual node");
+    }
+    this.shards = shards;
+    for (int shard = 0; shard < shards; shard++) {
+      for (int node = 0; node < virtualNodes; node++) {
+        points.put(hash("shard-" + shard + "#" + node), shard);
+      }
+    }
+  }
+
+  public int size() {
+    return shards;
+  }
+
+  public int shardFor(String nickname) {
+    Map.Entry<Long, Integer> point = points.ceilingEntry(hash(nickname.toLowerCase(Locale.ROOT)));
+    return (point == null ? points.firstEntry() : point).getValue();
+  }
+
+  /**
+   * 64-bit FNV-1a of the UTF-8 bytes, finished with the MurmurHash3 mixer so that keys sharing a
+   * prefix spread over the whole ring.
+   */
+  private static long hash(String value) {
+    long hash = FNV_OFFSET_BASIS;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= FNV_PRIME;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+}
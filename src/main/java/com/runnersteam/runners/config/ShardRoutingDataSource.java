@@ -0,0 +1,51 @@
+package com.runnersteam.runners.config;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Sends connections to the shard selected on the current thread, shard 0 when none is. Like
+ * {@link ReadWriteRoutingDataSource} it must sit behind a {@code LazyConnectionDataSourceProxy},
+ * so the shard can be selected after the transaction has started; {@link RunnerShards} selects
+ * it and starts a transaction per shard.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+  private static final ThreadLocal<Integer> currentShard = new ThreadLocal<>();
+
+  private final List<DataSource> shards;
+
+  public ShardRoutingDataSource(List<DataSource> shards) {
+    this.shards = List.copyOf(shards);
+    Map<Object, Object> targets = new HashMap<>();
+    for (int shard = 0; shard < shards.size(); shard++) {
+      targets.put(shard, shards.get(shard));
+    }
+    setTargetDataSources(targets);
+    setDefaultTargetDataSource(shards.get(0));
+  }
+
+  public List<DataSource> getShards() {
+    return shards;
+  }
+
+  static Integer currentShard() {
+    return currentShard.get();
+  }
+
+  static void selectShard(Integer shard) {
+    if (shard == null) {
+      currentShard.remove();
+    } else {
+      currentShard.set(shard);
+    }
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    return currentShard.get();
+  }
+}
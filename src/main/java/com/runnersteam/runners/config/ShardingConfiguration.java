@@ -0,0 +1,78 @@
+package com.runnersteam.runners.config;
+
+import static java.util.stream.Collectors.toList;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Replaces the auto-configured pool with one pool per {@code runners.sharding.shard-urls} entry,
+ * all sharing the {@code spring.datasource.*} credentials and {@code spring.datasource.hikari.*}
+ * settings, and migrates every shard on startup. Runners are placed by a {@link ShardRing} over
+ * the shards in the listed order, so new shards go at the end of the list. Not combined with
+ * {@link ReadReplicaConfiguration}.
+ */
+@Configuration
+@ConditionalOnProperty("runners.sharding.shard-urls")
+public class ShardingConfiguration {
+
+  @Bean
+  public ShardRing shardRing(@Value("${runners.sharding.shard-urls}") List<String> shardUrls,
+      @Value("${runners.sharding.virtual-nodes:160}") int virtualNodes) {
+    return new ShardRing(shardUrls.size(), virtualNodes);
+  }
+
+  @Bean
+  public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties dataSourceProperties,
+      @Value("${runners.sharding.shard-urls}") List<String> shardUrls,
+      Environment environment, MeterRegistry meterRegistry) {
+    List<DataSource> shards = IntStream.range(0, shardUrls.size())
+        .mapToObj(shard -> pool("shard-" + shard, shardUrls.get(shard), dataSourceProperties,
+            environment, meterRegistry))
+        .collect(toList());
+    return new ShardRoutingDataSource(shards);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+    return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+  }
+
+  @Bean
+  public FlywayMigrationStrategy shardMigrationStrategy(
+      ShardRoutingDataSource shardRoutingDataSource) {
+    return flyway -> shardRoutingDataSource.getShards().forEach(shard -> Flyway.configure()
+        .configuration(flyway.getConfiguration())
+        .dataSource(shard)
+        .load()
+        .migrate());
+  }
+
+  private DataSource pool(String name, String url, DataSourceProperties dataSourceProperties,
+      Environment environment, MeterRegistry meterRegistry) {
+    HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder()
+        .type(HikariDataSource.class)
+        .url(url)
+        .build();
+    Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+    pool.setPoolName(name);
+    pool.setMetricRegistry(meterRegistry);
+    return pool;
+  }
+}
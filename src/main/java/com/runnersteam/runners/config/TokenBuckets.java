@@ -0,0 +1,128 @@
+package com.runnersteam.runners.config;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket per client, kept as the generic cell rate algorithm does: a single theoretical
+ * arrival time, advanced by one emission interval per token taken with a compare and set, so
+ * taking a token never locks nor allocates. A bucket whose arrival time has passed is full, which
+ * is the same as having no bucket, so {@link #sweep} drops those; it is run in the background,
+ * never while serving a request. A stripe holding its share of maxClients makes room for a new
+ * client by evicting the most idle of a sample of its buckets, which at worst hands that client a
+ * full bucket again, so clients never share a bucket. Each sample starts where the previous one
+ * of the stripe ended, so evictions go round all the buckets rather than always sampling the
+ * first ones in iteration order.
+ */
+final class TokenBuckets {
+
+  private static final int STRIPES = 64;
+  private static final int EVICTION_SAMPLE = 8;
+
+  private final Stripe[] stripes = new Stripe[STRIPES];
+  private final int capacity;
+  private final long interval;
+  private final long tolerance;
+  private final int stripeCapacity;
+
+  TokenBuckets(double requestsPerSecond, int capacity, int maxClients) {
+    this.capacity = Math.max(1, capacity);
+    this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+    this.tolerance = interval * (this.capacity - 1);
+    this.stripeCapacity = Math.max(1, maxClients / STRIPES);
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe();
+    }
+  }
+
+  int getCapacity() {
+    return capacity;
+  }
+
+  int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.buckets.size();
+    }
+    return size;
+  }
+
+  /**
+   * Takes a token from the client's bucket. Returns 0 when it got one, otherwise the nanoseconds
+   * until the next token.
+   */
+  long tryAcquire(String client, long now) {
+    Stripe stripe = stripes[spread(client.hashCode()) & (STRIPES - 1)];
+    AtomicLong bucket = stripe.buckets.get(client);
+    if (bucket == null) {
+      bucket = stripe.bucketFor(client, now);
+    }
+    while (true) {
+      long arrival = bucket.get();
+      long start = Math.max(arrival, now);
+      long wait = start - tolerance - now;
+      if (wait > 0) {
+        return wait;
+      }
+      if (bucket.compareAndSet(arrival, start + interval)) {
+        return 0;
+      }
+    }
+  }
+
+  /** Drops the buckets that are full at {@code now}. */
+  void sweep(long now) {
+    for (Stripe stripe : stripes) {
+      stripe.buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+  }
+
+  private static int spread(int hash) {
+    hash = (hash ^ (hash >>> 16)) * 0x85EBCA6B;
+    hash = (hash ^ (hash >>> 13)) * 0xC2B2AE35;
+    return hash ^ (hash >>> 16);
+  }
+
+  private final class Stripe {
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private Iterator<Map.Entry<String, AtomicLong>> evictionCursor = Collections.emptyIterator();
+
+    private AtomicLong bucketFor(String client, long now) {
+      if (buckets.size() >= stripeCapacity) {
+        evictIdlest();
+      }
+      AtomicLong created = new AtomicLong(now);
+      AtomicLong existing = buckets.putIfAbsent(client, created);
+      return existing != null ? existing : created;
+    }
+
+    private synchronized void evictIdlest() {
+      Map.Entry<String, AtomicLong> idlest = null;
+      boolean restarted = false;
+      for (int sampled = 0; sampled < EVICTION_SAMPLE; sampled++) {
+        if (!evictionCursor.hasNext()) {
+          if (restarted) {
+            break;
+          }
+          evictionCursor = buckets.entrySet().iterator();
+          restarted = true;
+          if (!evictionCursor.hasNext()) {
+            break;
+          }
+        }
+        Map.Entry<String, AtomicLong> entry = evictionCursor.next();
+        if (idlest == null || entry.getValue().get() - idlest.getValue().get() < 0) {
+          idlest = entry;
+        }
+      }
+      if (idlest != null) {
+        buckets.remove(idlest.getKey(), idlest.getValue());
+      }
+    }
+  }
+}
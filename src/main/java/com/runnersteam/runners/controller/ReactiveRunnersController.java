@@ -0,0 +1,84 @@
+package com.runnersteam.runners.controller;
+
+import static com.runnersteam.runners.controller.RunnerHeaders.PREFER;
+import static com.runnersteam.runners.controller.RunnerHeaders.PREFERENCE_APPLIED;
+import static com.runnersteam.runners.controller.RunnerHeaders.RETURN_MINIMAL;
+import static com.runnersteam.runners.controller.RunnerHeaders.toVersion;
+import static com.runnersteam.runners.controller.RunnerHeaders.withETag;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
+
+import com.runnersteam.runners.exception.RunnerNotFoundException;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.service.ReactiveRunnersService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves the single runner contract of {@link RunnersController} on the reactive stack when the
+ * reactive profile is active.
+ */
+@RestController
+@RequestMapping("/")
+@Slf4j
+@CrossOrigin
+@Profile("reactive")
+public class ReactiveRunnersController {
+
+  @Autowired
+  private ReactiveRunnersService reactiveRunnersService;
+
+  @GetMapping("/{nickname}")
+  public Mono<ResponseEntity<Runner>> findByNickname(@PathVariable("nickname") String nickname) {
+    log.info("findByNickname-" + nickname);
+    return reactiveRunnersService.findByNickname(nickname)
+        .map(runner -> withETag(ResponseEntity.ok(), runner).body(runner))
+        .switchIfEmpty(Mono.error(() ->
+            new RunnerNotFoundException("Runner with nickname " + nickname + " does not exist")));
+  }
+
+  @ResponseStatus(CREATED)
+  @PostMapping(value = "/")
+  public Mono<Runner> create(@RequestBody Runner runner) {
+    log.info("create-" + runner.toString());
+    return reactiveRunnersService.create(runner);
+  }
+
+  @PutMapping("/{nickname}")
+  public Mono<ResponseEntity<Runner>> update(@PathVariable("nickname") String nickname,
+      @RequestBody Runner runner,
+      @RequestHeader(value = PREFER, required = false) String prefer,
+      @RequestHeader(value = IF_MATCH, required = false) String ifMatch) {
+    log.info("update-" + nickname + ";" + runner.toString());
+    Runner toUpdate = runner.toBuilder().nickname(nickname).version(toVersion(ifMatch)).build();
+    if (RETURN_MINIMAL.equals(prefer)) {
+      return reactiveRunnersService.updateLastRace(toUpdate)
+          .then(Mono.fromSupplier(() ->
+              ResponseEntity.noContent().header(PREFERENCE_APPLIED, RETURN_MINIMAL).build()));
+    }
+    return reactiveRunnersService.update(toUpdate)
+        .map(updated -> withETag(ResponseEntity.ok(), updated).body(updated));
+  }
+
+  @ResponseStatus(NO_CONTENT)
+  @DeleteMapping("/{nickname}")
+  public Mono<Void> deleteByNickname(@PathVariable("nickname") String nickname) {
+    log.info("deleteByNickname-" + nickname);
+    return reactiveRunnersService.deleteByNickName(nickname);
+  }
+}
@@ -0,0 +1,57 @@
+package com.runnersteam.runners.controller;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import com.runnersteam.runners.exception.RunnerVersionMismatchException;
+import com.runnersteam.runners.model.Runner;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity.BodyBuilder;
+
+/**
+ * Prefer, Accept and ETag handling shared by the servlet and the reactive controllers. The runner
+ * version is used as a strong ETag and If-Match carries the version an update expects.
+ */
+final class RunnerHeaders {
+
+  static final String PREFER = "Prefer";
+  static final String PREFERENCE_APPLIED = "Preference-Applied";
+  static final String RETURN_MINIMAL = "return=minimal";
+
+  private static final String ANY_ETAG = "*";
+  private static final Pattern STRONG_VERSION_ETAG = Pattern.compile("\"(\\d{1,18})\"");
+
+  private RunnerHeaders() {
+  }
+
+  static BodyBuilder withETag(BodyBuilder response, Runner runner) {
+    return runner.getVersion() == null ? response : response.eTag(runner.getVersion().toString());
+  }
+
+  static boolean prefersJson(String accept) {
+    if (accept == null) {
+      return true;
+    }
+    try {
+      List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+      MediaType.sortBySpecificityAndQuality(mediaTypes);
+      return mediaTypes.isEmpty() || mediaTypes.get(0).isCompatibleWith(APPLICATION_JSON);
+    } catch (InvalidMediaTypeException invalidMediaTypeException) {
+      return false;
+    }
+  }
+
+  static Long toVersion(String ifMatch) {
+    if (ifMatch == null || ANY_ETAG.equals(ifMatch.trim())) {
+      return null;
+    }
+    Matcher matcher = STRONG_VERSION_ETAG.matcher(ifMatch.trim());
+    if (!matcher.matches()) {
+      throw new RunnerVersionMismatchException("If-Match " + ifMatch + " is not a runner version");
+    }
+    return Long.valueOf(matcher.group(1));
+  }
+}
@@ -1,14 +1,47 @@
 package com.runnersteam.runners.controller;
 
+import static com.runnersteam.runners.controller.RunnerHeaders.PREFER;
+import static com.runnersteam.runners.controller.RunnerHeaders.PREFERENCE_APPLIED;
+import static com.runnersteam.runners.controller.RunnerHeaders.RETURN_MINIMAL;
+import static com.runnersteam.runners.controller.RunnerHeaders.prefersJson;
+import static com.runnersteam.runners.controller.RunnerHeaders.toVersion;
+import static com.runnersteam.runners.controller.RunnerHeaders.withETag;
+import static org.springframework.http.HttpHeaders.ACCEPT;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
 
+import com.runnersteam.runners.cache.EncodedRunnersCache;
+import com.runnersteam.runners.config.RunnerShards;
 import com.runnersteam.runners.exception.RunnerNotFoundException;
+import com.runnersteam.runners.metrics.HotKeys;
+import com.runnersteam.runners.model.ExportFormat;
+import com.runnersteam.runners.model.RaceResult;
+import com.runnersteam.runners.model.RaceResultsReceipt;
 import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerChangesPage;
+import com.runnersteam.runners.model.RunnerCreationResult;
+import com.runnersteam.runners.model.RunnersLookup;
+import com.runnersteam.runners.model.RunnersPage;
+import com.runnersteam.runners.service.RaceResultsService;
+import com.runnersteam.runners.service.RunnerChangeFeed;
+import com.runnersteam.runners.service.RunnersExporter;
+import com.runnersteam.runners.service.RunnersImporter;
 import com.runnersteam.runners.service.RunnersService;
+import java.io.IOException;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.ResponseEntity.BodyBuilder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -16,47 +49,173 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/")
 @Slf4j
 @CrossOrigin
+@Profile("!reactive")
 public class RunnersController {
 
   @Autowired
   private RunnersService runnersService;
 
-  @ResponseStatus(OK)
+  @Autowired
+  private RunnersExporter runnersExporter;
+
+  @Autowired
+  private RunnersImporter runnersImporter;
+
+  @Autowired
+  private RaceResultsService raceResultsService;
+
+  @Autowired
+  private RunnerChangeFeed runnerChangeFeed;
+
+  @Autowired
+  private RunnerShards runnerShards;
+
+  @Autowired
+  private HotKeys hotKeys;
+
+  @Autowired
+  private EncodedRunnersCache encodedRunnersCache;
+
   @GetMapping("/{nickname}")
-  public Runner findByNickname(@PathVariable("nickname") String nickname) {
+  public ResponseEntity<?> findByNickname(@PathVariable("nickname") String nickname,
+      @RequestHeader(value = ACCEPT, required = false) String accept) {
     log.info("findByNickname-" + nickname);
-    return runnersService.findByNickname(nickname)
-        .orElseThrow(() ->
-            new RunnerNotFoundException("Runner with nickname " + nickname + " does not exist"));
+    hotKeys.read(nickname);
+    Runner runner = runnersService.findByNickname(nickname).orElseThrow(() ->
+        new RunnerNotFoundException("Runner with nickname " + nickname + " does not exist"));
+    BodyBuilder response = withETag(ResponseEntity.ok(), runner);
+    if (encodedRunnersCache.isEnabled() && prefersJson(accept)) {
+      return response.contentType(APPLICATION_JSON)
+          .body(encodedRunnersCache.encode(nickname, runner));
+    }
+    return response.body(runner);
+  }
+
+  @ResponseStatus(OK)
+  @GetMapping("/{nickname}/results")
+  public List<RaceResult> findRaceResults(@PathVariable("nickname") String nickname,
+      @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    log.info("findRaceResults-" + nickname + ";" + limit);
+    hotKeys.read(nickname);
+    return raceResultsService.findLatest(nickname, limit);
+  }
+
+  @ResponseStatus(OK)
+  @GetMapping("/")
+  public RunnersPage list(@RequestParam(value = "after", defaultValue = "") String after,
+      @RequestParam(value = "limit", defaultValue = "100") int limit) {
+    log.info("list-" + after + ";" + limit);
+    return runnersService.list(after, limit);
+  }
+
+  @ResponseStatus(OK)
+  @PostMapping("/lookup")
+  public RunnersLookup lookup(@RequestBody List<String> nicknames) {
+    log.info("lookup-" + nicknames.size());
+    nicknames.forEach(hotKeys::read);
+    return runnersService.findAllByNickname(nicknames);
+  }
+
+  @GetMapping(value = "/changes", produces = APPLICATION_JSON_VALUE)
+  public DeferredResult<RunnerChangesPage> changes(
+      @RequestParam(value = "shard", defaultValue = "0") int shard,
+      @RequestParam(value = "since", defaultValue = "0") long since,
+      @RequestParam(value = "limit", defaultValue = "100") int limit,
+      @RequestParam(value = "wait", defaultValue = "0") long waitMillis) {
+    log.info("changes-" + shard + ";" + since + ";" + limit + ";" + waitMillis);
+    return runnerChangeFeed.poll(checkShard(shard), since, limit, waitMillis);
+  }
+
+  @GetMapping(value = "/changes", produces = TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamChanges(@RequestParam(value = "shard", defaultValue = "0") int shard,
+      @RequestParam(value = "since", required = false) Long since,
+      @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+    long from = lastEventId != null ? lastEventId : since != null ? since : 0;
+    log.info("streamChanges-" + shard + ";" + from);
+    return runnerChangeFeed.stream(checkShard(shard), from);
+  }
+
+  private int checkShard(int shard) {
+    if (shard < 0 || shard >= runnerShards.count()) {
+      throw new ResponseStatusException(BAD_REQUEST, "No shard " + shard);
+    }
+    return shard;
+  }
+
+  @GetMapping("/export")
+  public void export(@RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format,
+      HttpServletResponse response) throws IOException {
+    log.info("export-" + format);
+    response.setContentType(format.getContentType());
+    runnersExporter.export(format, response.getOutputStream());
+  }
+
+  @PostMapping(value = "/import", consumes = "text/csv")
+  public void importRunners(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    log.info("importRunners-" + request.getContentLengthLong());
+    response.setContentType(ExportFormat.NDJSON.getContentType());
+    runnersImporter.importCsv(request.getInputStream(), response.getOutputStream());
   }
 
   @ResponseStatus(CREATED)
   @PostMapping(value = "/")
   public Runner create(@RequestBody Runner runner) {
     log.info("create-" + runner.toString());
+    hotKeys.write(runner.getNickname());
     return runnersService.create(runner);
   }
 
   @ResponseStatus(OK)
+  @PostMapping(value = "/batch")
+  public List<RunnerCreationResult> createAll(@RequestBody List<Runner> runners) {
+    log.info("createAll-" + runners.size());
+    runners.forEach(runner -> hotKeys.write(runner.getNickname()));
+    return runnersService.createAll(runners);
+  }
+
+  @ResponseStatus(OK)
+  @PostMapping(value = "/results")
+  public RaceResultsReceipt addRaceResults(@RequestBody List<RaceResult> results) {
+    log.info("addRaceResults-" + results.size());
+    results.forEach(result -> hotKeys.write(result.getNickname()));
+    return raceResultsService.addAll(results);
+  }
+
   @PutMapping("/{nickname}")
-  public Runner update(@PathVariable("nickname") String nickname, @RequestBody Runner runner) {
+  public ResponseEntity<Runner> update(@PathVariable("nickname") String nickname,
+      @RequestBody Runner runner,
+      @RequestHeader(value = PREFER, required = false) String prefer,
+      @RequestHeader(value = IF_MATCH, required = false) String ifMatch) {
     log.info("update-" + nickname + ";" + runner.toString());
-    Runner toUpdate = runner.toBuilder().nickname(nickname).build();
-    return runnersService.update(toUpdate);
+    hotKeys.write(nickname);
+    Runner toUpdate = runner.toBuilder().nickname(nickname).version(toVersion(ifMatch)).build();
+    if (RETURN_MINIMAL.equals(prefer)) {
+      runnersService.updateLastRace(toUpdate);
+      return ResponseEntity.noContent().header(PREFERENCE_APPLIED, RETURN_MINIMAL).build();
+    }
+    Runner updated = runnersService.update(toUpdate);
+    return withETag(ResponseEntity.ok(), updated).body(updated);
   }
 
   @ResponseStatus(NO_CONTENT)
   @DeleteMapping("/{nickname}")
   public void deleteByNickname(@PathVariable("nickname") String nickname) {
     log.info("deleteByNickname-" + nickname);
+    hotKeys.write(nickname);
     runnersService.deleteByNickName(nickname);
   }
 }
@@ -3,6 +3,6 @@ package com.runnersteam.runners.exception;
 public class ExistingRunnerException extends RuntimeException {
 
   public ExistingRunnerException(String message) {
-    super(message);
+    super(message, null, false, false);
   }
 }
@@ -3,6 +3,6 @@ package com.runnersteam.runners.exception;
 public class RunnerNotFoundException extends RuntimeException {
 
   public RunnerNotFoundException(String message) {
-    super(message);
+    super(message, null, false, false);
   }
 }
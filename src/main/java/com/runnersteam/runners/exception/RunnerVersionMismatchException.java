@@ -0,0 +1,8 @@
+package com.runnersteam.runners.exception;
+
+public class RunnerVersionMismatchException extends RuntimeException {
+
+  public RunnerVersionMismatchException(String message) {
+    super(message, null, false, false);
+  }
+}
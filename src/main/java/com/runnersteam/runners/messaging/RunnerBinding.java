@@ -1,12 +1,23 @@
 package com.runnersteam.runners.messaging;
 
+import org.springframework.cloud.stream.annotation.Input;
 import org.springframework.cloud.stream.annotation.Output;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
 
 public interface RunnerBinding {
 
   String OUTPUT = "newRunnerRegistrationOutput";
+  String INVALIDATION_OUTPUT = "runnerInvalidationOutput";
+  String INVALIDATION_INPUT = "runnerInvalidationInput";
+  String REGISTRATION_CONFIRMS = "runnerRegistrationConfirms";
 
   @Output(OUTPUT)
   MessageChannel newRunnerRegistrationOutput();
+
+  @Output(INVALIDATION_OUTPUT)
+  MessageChannel runnerInvalidationOutput();
+
+  @Input(INVALIDATION_INPUT)
+  SubscribableChannel runnerInvalidationInput();
 }
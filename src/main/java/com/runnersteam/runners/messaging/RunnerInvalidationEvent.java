@@ -0,0 +1,14 @@
+package com.runnersteam.runners.messaging;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RunnerInvalidationEvent {
+  private List<String> nicknames;
+  private List<String> emails;
+}
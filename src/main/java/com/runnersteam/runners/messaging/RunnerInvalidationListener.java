@@ -0,0 +1,28 @@
+package com.runnersteam.runners.messaging;
+
+import com.runnersteam.runners.cache.RunnersCache;
+import com.runnersteam.runners.cache.RunnersExistenceFilter;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.stream.annotation.StreamListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@Slf4j
+public class RunnerInvalidationListener {
+
+  @Autowired
+  private RunnersCache runnersCache;
+
+  @Autowired
+  private RunnersExistenceFilter runnersExistenceFilter;
+
+  @StreamListener(RunnerBinding.INVALIDATION_INPUT)
+  public void onInvalidation(RunnerInvalidationEvent event) {
+    log.debug("onInvalidation-" + event.getNicknames());
+    runnersCache.invalidateLocally(event.getNicknames());
+    runnersExistenceFilter.putAll(event.getNicknames(),
+        event.getEmails() == null ? List.of() : event.getEmails());
+  }
+}
@@ -0,0 +1,76 @@
+package com.runnersteam.runners.messaging;
+
+import static java.util.stream.Collectors.toList;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.runnersteam.runners.model.OutboxEvent;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.repository.OutboxRepository;
+import java.util.List;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores registration events in the runner_outbox table. Callers run inside the transaction that
+ * inserts the runners, so an event exists if and only if its runner was committed;
+ * {@link RunnerRegistrationRelay} publishes them afterwards. Payloads are encoded as
+ * runners.outbox.content-type, application/json or application/cbor, and each event keeps its
+ * content type, so changing it does not affect events already stored.
+ */
+@Component
+public class RunnerRegistrationOutbox {
+
+  @Autowired
+  private OutboxRepository outboxRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+  @Value("${runners.outbox.content-type:" + APPLICATION_JSON_VALUE + "}")
+  private String contentType;
+
+  private ObjectMapper payloadMapper;
+
+  @PostConstruct
+  public void init() {
+    if (APPLICATION_JSON_VALUE.equals(contentType)) {
+      payloadMapper = objectMapper;
+    } else if (APPLICATION_CBOR_VALUE.equals(contentType)) {
+      payloadMapper = objectMapperBuilder.factory(new CBORFactory()).build();
+    } else {
+      throw new IllegalStateException("Unsupported runners.outbox.content-type " + contentType);
+    }
+  }
+
+  public void add(Runner runner) {
+    addAll(List.of(runner));
+  }
+
+  public void addAll(List<Runner> runners) {
+    if (!runners.isEmpty()) {
+      outboxRepository.insertAll(runners.stream().map(this::toEvent).collect(toList()));
+    }
+  }
+
+  public OutboxEvent toEvent(Runner runner) {
+    try {
+      return OutboxEvent.builder()
+          .nickname(runner.getNickname())
+          .payload(payloadMapper.writeValueAsBytes(runner))
+          .contentType(contentType)
+          .build();
+    } catch (JsonProcessingException jsonProcessingException) {
+      throw new IllegalStateException(jsonProcessingException);
+    }
+  }
+}
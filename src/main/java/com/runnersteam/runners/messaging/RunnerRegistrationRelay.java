@@ -0,0 +1,171 @@
+package com.runnersteam.runners.messaging;
+
+import static com.runnersteam.runners.metrics.RunnersMetricsAspect.MESSAGING_TIMER;
+import static java.util.stream.Collectors.toList;
+import static org.springframework.messaging.MessageHeaders.CONTENT_TYPE;
+import static org.springframework.messaging.support.MessageBuilder.withPayload;
+
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.OutboxEvent;
+import com.runnersteam.runners.repository.OutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Drains runner_outbox shard by shard and publishes each event to newRunnerRegistrationOutput.
+ * A batch is claimed for claim-timeout in a short READ_COMMITTED transaction, published outside
+ * any transaction, and then deleted, or released when unconfirmed, in a second short one, so
+ * registrations never wait on the broker.
+ *
+ * <p>Delivery is at least once. Events of one nickname are published in id order, one at a
+ * time: an event is only claimed once every older event of its nickname has been confirmed and
+ * deleted, so a retried event is never overtaken by a later one of the same nickname. There is
+ * no order across nicknames; an unconfirmed event may be published after newer events of other
+ * nicknames. If a relay stalls past claim-timeout its batch can be claimed again and published
+ * twice, possibly out of order, so claim-timeout should stay well above confirm-timeout.
+ */
+@Component
+@Slf4j
+public class RunnerRegistrationRelay {
+
+  public static final String NICKNAME_HEADER = "nickname";
+  public static final String OUTBOX_ID_HEADER = "outboxId";
+
+  @Autowired
+  private OutboxRepository outboxRepository;
+
+  @Autowired
+  private MessageChannel newRunnerRegistrationOutput;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Autowired
+  private RunnerShards runnerShards;
+
+  @Value("${runners.outbox.batch-size:500}")
+  private int batchSize;
+
+  @Value("${runners.outbox.publisher-confirms:false}")
+  private boolean publisherConfirms;
+
+  @Value("${runners.outbox.confirm-timeout:5s}")
+  private Duration confirmTimeout;
+
+  @Value("${runners.outbox.claim-timeout:60s}")
+  private Duration claimTimeout;
+
+  private TransactionTemplate claimTransaction;
+  private volatile PendingConfirms pendingConfirms;
+
+  @PostConstruct
+  public void init() {
+    claimTransaction = new TransactionTemplate(transactionManager);
+    claimTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    claimTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+  }
+
+  @Scheduled(fixedDelayString = "${runners.outbox.relay-interval:500}")
+  public void relay() {
+    for (int shard = 0; shard < runnerShards.count(); shard++) {
+      int relayed;
+      do {
+        relayed = relayBatch(shard);
+      } while (relayed == batchSize);
+    }
+  }
+
+  @ServiceActivator(inputChannel = RunnerBinding.REGISTRATION_CONFIRMS)
+  public void onConfirm(Message<?> confirm) {
+    Message<?> confirmed = confirm.getPayload() instanceof Message
+        ? (Message<?>) confirm.getPayload() : confirm;
+    PendingConfirms pending = pendingConfirms;
+    Long outboxId = confirmed.getHeaders().get(OUTBOX_ID_HEADER, Long.class);
+    if (pending != null && outboxId != null) {
+      pending.confirm(outboxId);
+    }
+  }
+
+  private int relayBatch(int shard) {
+    List<OutboxEvent> events = runnerShards.inTransactionOnShard(shard, claimTransaction,
+        () -> outboxRepository.claimNextBatch(batchSize, claimTimeout));
+    if (events.isEmpty()) {
+      return 0;
+    }
+    List<Long> ids = events.stream().map(OutboxEvent::getId).collect(toList());
+    PendingConfirms pending = new PendingConfirms(ids);
+    pendingConfirms = pending;
+    Timer sendTimer = meterRegistry.timer(MESSAGING_TIMER, "channel", RunnerBinding.OUTPUT);
+    events.forEach(event ->
+        sendTimer.record(() -> newRunnerRegistrationOutput.send(toMessage(event))));
+
+    List<Long> relayed = publisherConfirms ? pending.await(confirmTimeout) : ids;
+    if (relayed.size() < ids.size()) {
+      log.warn("relay-" + (ids.size() - relayed.size()) + " registration events not confirmed");
+    }
+    List<Long> unconfirmed = ids.stream().filter(id -> !relayed.contains(id)).collect(toList());
+    runnerShards.inTransactionOnShard(shard, claimTransaction, () -> {
+      outboxRepository.deleteAll(relayed);
+      outboxRepository.releaseAll(unconfirmed);
+      return null;
+    });
+    return relayed.size();
+  }
+
+  private Message<byte[]> toMessage(OutboxEvent event) {
+    return withPayload(event.getPayload())
+        .setHeader(CONTENT_TYPE, event.getContentType())
+        .setHeader(NICKNAME_HEADER, event.getNickname())
+        .setHeader(OUTBOX_ID_HEADER, event.getId())
+        .build();
+  }
+
+  private static class PendingConfirms {
+
+    private final List<Long> ids;
+    private final Set<Long> unconfirmed = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch latch;
+
+    PendingConfirms(List<Long> ids) {
+      this.ids = ids;
+      this.unconfirmed.addAll(ids);
+      this.latch = new CountDownLatch(ids.size());
+    }
+
+    void confirm(Long id) {
+      if (unconfirmed.remove(id)) {
+        latch.countDown();
+      }
+    }
+
+    List<Long> await(Duration timeout) {
+      try {
+        latch.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      return ids.stream().filter(id -> !unconfirmed.contains(id)).collect(toList());
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.runnersteam.runners.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free count-min sketch over strings, compared case-insensitively. Estimates never
+ * undercount; they overcount by at most the total times e / width with probability
+ * 1 - e^-depth.
+ */
+final class CountMinSketch {
+
+  private final AtomicLongArray counters;
+  private final int depth;
+  private final int width;
+
+  CountMinSketch(int depth, int width) {
+    this.counters = new AtomicLongArray(Math.multiplyExact(depth, width));
+    this.depth = depth;
+    this.width = width;
+  }
+
+  /**
+   * Counts the key once and returns its new estimate.
+   */
+  long add(String key) {
+    long hash1 = hash(key);
+    long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+    long estimate = Long.MAX_VALUE;
+    for (int i = 0; i < depth; i++) {
+      estimate = Math.min(estimate, counters.incrementAndGet(index(i, hash1, hash2)));
+    }
+    return estimate;
+  }
+
+  long estimate(String key) {
+    long hash1 = hash(key);
+    long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+    long estimate = Long.MAX_VALUE;
+    for (int i = 0; i < depth; i++) {
+      estimate = Math.min(estimate, counters.get(index(i, hash1, hash2)));
+    }
+    return estimate;
+  }
+
+  void clear() {
+    for (int i = 0; i < counters.length(); i++) {
+      counters.set(i, 0);
+    }
+  }
+
+  private int index(int row, long hash1, long hash2) {
+    return row * width + (int) (((hash1 + row * hash2) & Long.MAX_VALUE) % width);
+  }
+
+  private static long hash(String key) {
+    long hash = 0xCBF29CE484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash = (hash ^ Character.toLowerCase(key.charAt(i))) * 0x100000001B3L;
+    }
+    return mix(hash);
+  }
+
+  private static long mix(long hash) {
+    hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+    hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return hash ^ (hash >>> 33);
+  }
+}
@@ -0,0 +1,64 @@
+package com.runnersteam.runners.metrics;
+
+import com.runnersteam.runners.model.HotKeysReport;
+import java.time.Duration;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Most read and most written nicknames over the last runners.hot-keys.buckets times
+ * runners.hot-keys.bucket-interval, served by the hotkeys actuator endpoint. Counts are
+ * estimates that may overcount, never undercount.
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeys {
+
+  @Value("${runners.hot-keys.size:20}")
+  private int size;
+
+  @Value("${runners.hot-keys.buckets:6}")
+  private int buckets;
+
+  @Value("${runners.hot-keys.bucket-interval:10000}")
+  private long bucketInterval;
+
+  @Value("${runners.hot-keys.depth:4}")
+  private int depth;
+
+  @Value("${runners.hot-keys.width:2048}")
+  private int width;
+
+  private TopKeys reads;
+  private TopKeys writes;
+
+  @PostConstruct
+  public void init() {
+    reads = new TopKeys(buckets, depth, width, size);
+    writes = new TopKeys(buckets, depth, width, size);
+  }
+
+  public void read(String nickname) {
+    reads.add(nickname);
+  }
+
+  public void write(String nickname) {
+    writes.add(nickname);
+  }
+
+  @Scheduled(fixedRateString = "${runners.hot-keys.bucket-interval:10000}")
+  public void rotate() {
+    reads.rotate();
+    writes.rotate();
+  }
+
+  @ReadOperation
+  public HotKeysReport report() {
+    return new HotKeysReport(Duration.ofMillis(buckets * bucketInterval).getSeconds(),
+        reads.total(), writes.total(), reads.top(), writes.top());
+  }
+}
@@ -0,0 +1,60 @@
+package com.runnersteam.runners.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every public RunnersService operation and every repository call, tagged with the method
+ * name and the exception thrown, if any. Percentiles and histograms are configured through
+ * management.metrics.distribution.* for the runners prefix.
+ */
+@Aspect
+@Component
+public class RunnersMetricsAspect {
+
+  public static final String SERVICE_TIMER = "runners.service";
+  public static final String REPOSITORY_TIMER = "runners.repository";
+  public static final String MESSAGING_TIMER = "runners.messaging.send";
+
+  private static final String NONE = "none";
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Around("execution(public * com.runnersteam.runners.service.RunnersService.*(..))")
+  public Object timeRunnersService(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(SERVICE_TIMER, "RunnersService", joinPoint);
+  }
+
+  @Around("this(com.runnersteam.runners.repository.RunnersRepository)")
+  public Object timeRunnersRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(REPOSITORY_TIMER, "RunnersRepository", joinPoint);
+  }
+
+  @Around("this(com.runnersteam.runners.repository.OutboxRepository)")
+  public Object timeOutboxRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(REPOSITORY_TIMER, "OutboxRepository", joinPoint);
+  }
+
+  private Object time(String name, String type, ProceedingJoinPoint joinPoint) throws Throwable {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String exception = NONE;
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable throwable) {
+      exception = throwable.getClass().getSimpleName();
+      throw throwable;
+    } finally {
+      sample.stop(Timer.builder(name)
+          .tag("class", type)
+          .tag("method", joinPoint.getSignature().getName())
+          .tag("exception", exception)
+          .register(meterRegistry));
+    }
+  }
+}
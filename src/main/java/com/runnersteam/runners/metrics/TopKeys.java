@@ -0,0 +1,149 @@
+package com.runnersteam.runners.metrics;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+
+import com.runnersteam.runners.model.HotKey;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Approximate most frequent keys over a sliding window made of buckets, each one a count-min
+ * sketch plus a table of its heaviest keys. Only keys whose estimate beats the lightest one in
+ * the table try to enter it, and they give up when another thread holds the table, so counting
+ * never blocks or allocates. Rotating clears the oldest bucket and starts counting into it.
+ */
+final class TopKeys {
+
+  private final Bucket[] buckets;
+  private final int size;
+  private volatile int current;
+
+  TopKeys(int bucketCount, int depth, int width, int size) {
+    this.buckets = new Bucket[bucketCount];
+    for (int i = 0; i < bucketCount; i++) {
+      buckets[i] = new Bucket(depth, width, size);
+    }
+    this.size = size;
+  }
+
+  void add(String key) {
+    if (key != null) {
+      buckets[current].add(key);
+    }
+  }
+
+  void rotate() {
+    int next = (current + 1) % buckets.length;
+    buckets[next].clear();
+    current = next;
+  }
+
+  long total() {
+    long total = 0;
+    for (Bucket bucket : buckets) {
+      total += bucket.total.sum();
+    }
+    return total;
+  }
+
+  List<HotKey> top() {
+    Map<String, Long> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (Bucket bucket : buckets) {
+      bucket.collectKeys(counts);
+    }
+    counts.replaceAll((key, ignored) -> estimate(key));
+    return counts.entrySet().stream()
+        .sorted(comparingLong(Map.Entry<String, Long>::getValue).reversed())
+        .limit(size)
+        .map(entry -> new HotKey(entry.getKey(), entry.getValue()))
+        .collect(toList());
+  }
+
+  private long estimate(String key) {
+    long estimate = 0;
+    for (Bucket bucket : buckets) {
+      estimate += bucket.sketch.estimate(key);
+    }
+    return estimate;
+  }
+
+  private static final class Bucket {
+
+    private final CountMinSketch sketch;
+    private final LongAdder total = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final String[] keys;
+    private final long[] counts;
+    private int used;
+    private volatile long threshold;
+
+    private Bucket(int depth, int width, int size) {
+      this.sketch = new CountMinSketch(depth, width);
+      this.keys = new String[size];
+      this.counts = new long[size];
+    }
+
+    private void add(String key) {
+      total.increment();
+      long count = sketch.add(key);
+      if (count > threshold && lock.tryLock()) {
+        try {
+          admit(key, count);
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+
+    private void admit(String key, long count) {
+      int lightest = 0;
+      int slot = -1;
+      for (int i = 0; i < used && slot < 0; i++) {
+        if (keys[i].equalsIgnoreCase(key)) {
+          slot = i;
+        } else if (counts[i] < counts[lightest]) {
+          lightest = i;
+        }
+      }
+      if (slot < 0) {
+        slot = used < keys.length ? used++ : lightest;
+        keys[slot] = key;
+      }
+      counts[slot] = count;
+      if (used == keys.length) {
+        long min = Long.MAX_VALUE;
+        for (long candidate : counts) {
+          min = Math.min(min, candidate);
+        }
+        threshold = min;
+      }
+    }
+
+    private void collectKeys(Map<String, Long> into) {
+      lock.lock();
+      try {
+        for (int i = 0; i < used; i++) {
+          into.put(keys[i], 0L);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void clear() {
+      lock.lock();
+      try {
+        sketch.clear();
+        total.reset();
+        used = 0;
+        threshold = 0;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,13 @@
+package com.runnersteam.runners.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class HotKey {
+  private String nickname;
+  private long count;
+}
@@ -0,0 +1,17 @@
+package com.runnersteam.runners.model;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class HotKeysReport {
+  private long windowSeconds;
+  private long reads;
+  private long writes;
+  private List<HotKey> topReads;
+  private List<HotKey> topWrites;
+}
@@ -0,0 +1,17 @@
+package com.runnersteam.runners.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+  private Long id;
+  private String nickname;
+  private byte[] payload;
+  private String contentType;
+}
@@ -1,9 +1,12 @@
 package com.runnersteam.runners.model;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+import static com.fasterxml.jackson.annotation.JsonProperty.Access.READ_ONLY;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
@@ -14,6 +17,7 @@ import javax.persistence.Entity;
 import javax.persistence.EntityListeners;
 import javax.persistence.Id;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -53,4 +57,23 @@ public class Runner {
   private LocalDate subscriptionDate;
 
   private String lastRace;
+
+  @Column(insertable = false, updatable = false)
+  @JsonProperty(access = READ_ONLY)
+  @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+  @JsonDeserialize(using = LocalDateDeserializer.class)
+  @JsonSerialize(using = LocalDateSerializer.class)
+  private LocalDate lastRaceDate;
+
+  @Column(insertable = false, updatable = false)
+  @JsonProperty(access = READ_ONLY)
+  private Integer raceCount;
+
+  @Column(insertable = false, updatable = false)
+  @JsonProperty(access = READ_ONLY)
+  private Integer personalBestSeconds;
+
+  @Version
+  @JsonIgnore
+  private Long version;
 }
@@ -0,0 +1,18 @@
+package com.runnersteam.runners.model;
+
+import java.time.Instant;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class RunnerChange {
+  private long sequence;
+  private String nickname;
+  private RunnerOperation operation;
+  private Instant changedAt;
+}
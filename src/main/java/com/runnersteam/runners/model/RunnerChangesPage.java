@@ -0,0 +1,14 @@
+package com.runnersteam.runners.model;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RunnerChangesPage {
+  private List<RunnerChange> changes;
+  private long next;
+}
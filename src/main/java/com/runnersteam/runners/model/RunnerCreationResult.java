@@ -0,0 +1,13 @@
+package com.runnersteam.runners.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RunnerCreationResult {
+  private String nickname;
+  private RunnerCreationStatus status;
+}
@@ -0,0 +1,7 @@
+package com.runnersteam.runners.model;
+
+public enum RunnerCreationStatus {
+  CREATED,
+  DUPLICATE_NICKNAME,
+  DUPLICATE_EMAIL
+}
@@ -0,0 +1,14 @@
+package com.runnersteam.runners.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class RunnerImportProgress {
+  private long processed;
+  private long imported;
+  private long rejected;
+}
@@ -0,0 +1,8 @@
+package com.runnersteam.runners.model;
+
+public interface RunnerKey {
+
+  String getNickname();
+
+  String getEmail();
+}
@@ -0,0 +1,7 @@
+package com.runnersteam.runners.model;
+
+public enum RunnerOperation {
+  CREATE,
+  UPDATE,
+  DELETE
+}
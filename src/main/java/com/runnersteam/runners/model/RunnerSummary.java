@@ -0,0 +1,10 @@
+package com.runnersteam.runners.model;
+
+public interface RunnerSummary {
+
+  String getNickname();
+
+  String getName();
+
+  String getLastRace();
+}
@@ -0,0 +1,18 @@
+package com.runnersteam.runners.model;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@JsonInclude(NON_NULL)
+public class RunnersPage {
+  private List<RunnerSummary> runners;
+  private String next;
+}
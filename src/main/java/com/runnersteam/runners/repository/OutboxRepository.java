@@ -0,0 +1,79 @@
+package com.runnersteam.runners.repository;
+
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toList;
+
+import com.runnersteam.runners.model.OutboxEvent;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class OutboxRepository {
+
+  private static final String INSERT =
+      "insert into runner_outbox (nickname, payload, content_type) values (?, ?, ?)";
+  private static final String LOCK_NEXT_BATCH = "select id, nickname, payload, content_type"
+      + " from runner_outbox o"
+      + " where (claimed_until is null or claimed_until < current_timestamp)"
+      + " and not exists"
+      + " (select 1 from runner_outbox p where p.nickname = o.nickname and p.id < o.id)"
+      + " order by id limit ? for update";
+  private static final String CLAIM = "update runner_outbox"
+      + " set claimed_until = timestampadd(second, :seconds, current_timestamp) where id in (:ids)";
+  private static final String RELEASE =
+      "update runner_outbox set claimed_until = null where id in (:ids)";
+  private static final String DELETE = "delete from runner_outbox where id in (:ids)";
+
+  @Autowired
+  private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+  public void insertAll(List<OutboxEvent> events) {
+    namedParameterJdbcTemplate.getJdbcOperations().batchUpdate(INSERT, events, events.size(),
+        (preparedStatement, event) -> {
+          preparedStatement.setString(1, event.getNickname());
+          preparedStatement.setBytes(2, event.getPayload());
+          preparedStatement.setString(3, event.getContentType());
+        });
+  }
+
+  /**
+   * Claims up to batchSize events for claimTimeout, oldest first, skipping events claimed by
+   * someone else and events of a nickname that still has an older event, so the events of a
+   * nickname are claimed one at a time and in order. The claim is taken on the database clock.
+   */
+  public List<OutboxEvent> claimNextBatch(int batchSize, Duration claimTimeout) {
+    List<OutboxEvent> events = lockNextBatch(batchSize);
+    if (!events.isEmpty()) {
+      namedParameterJdbcTemplate.update(CLAIM, Map.of("seconds", claimTimeout.toSeconds(),
+          "ids", events.stream().map(OutboxEvent::getId).collect(toList())));
+    }
+    return events;
+  }
+
+  public void releaseAll(List<Long> ids) {
+    if (!ids.isEmpty()) {
+      namedParameterJdbcTemplate.update(RELEASE, singletonMap("ids", ids));
+    }
+  }
+
+  private List<OutboxEvent> lockNextBatch(int batchSize) {
+    return namedParameterJdbcTemplate.getJdbcOperations().query(LOCK_NEXT_BATCH,
+        (resultSet, rowNum) -> OutboxEvent.builder()
+            .id(resultSet.getLong("id"))
+            .nickname(resultSet.getString("nickname"))
+            .payload(resultSet.getBytes("payload"))
+            .contentType(resultSet.getString("content_type"))
+            .build(),
+        batchSize);
+  }
+
+  public void deleteAll(List<Long> ids) {
+    if (!ids.isEmpty()) {
+      namedParameterJdbcTemplate.update(DELETE, singletonMap("ids", ids));
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.runnersteam.runners.repository;
+
+import com.runnersteam.runners.model.RaceResult;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Append-only race_results history. Reading a runner never scans it: the aggregates are kept on
+ * the runners row by {@link RunnersRepository#addRaceResults}.
+ */
+@Repository
+public class RaceResultsRepository {
+
+  private static final String INSERT = "insert into race_results "
+      + "(nickname, race, race_date, finish_time_seconds) values (?, ?, ?, ?)";
+  private static final String FIND_BY_NICKNAME = "select nickname, race, race_date, "
+      + "finish_time_seconds from race_results where nickname = ? "
+      + "order by race_date desc, id desc limit ?";
+  private static final String FIND_BY_NICKNAME_IN = "select nickname, race, race_date, "
+      + "finish_time_seconds from race_results where nickname in (:nicknames) order by id";
+
+  @Autowired
+  private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+  public void insertAll(List<RaceResult> results) {
+    namedParameterJdbcTemplate.getJdbcOperations().batchUpdate(INSERT, results, results.size(),
+        (preparedStatement, result) -> {
+          preparedStatement.setString(1, result.getNickname());
+          preparedStatement.setString(2, result.getRace());
+          preparedStatement.setDate(3, Date.valueOf(result.getRaceDate()));
+          preparedStatement.setInt(4, result.getFinishTimeSeconds());
+        });
+  }
+
+  public List<RaceResult> findLatestByNickname(String nickname, int limit) {
+    return namedParameterJdbcTemplate.getJdbcOperations().query(FIND_BY_NICKNAME,
+        (resultSet, rowNum) -> toRaceResult(resultSet), nickname, limit);
+  }
+
+  public List<RaceResult> findByNicknameIn(Collection<String> nicknames) {
+    if (nicknames.isEmpty()) {
+      return List.of();
+    }
+    return namedParameterJdbcTemplate.query(FIND_BY_NICKNAME_IN,
+        Map.of("nicknames", nicknames), (resultSet, rowNum) -> toRaceResult(resultSet));
+  }
+
+  private RaceResult toRaceResult(ResultSet resultSet) throws SQLException {
+    return RaceResult.builder()
+        .nickname(resultSet.getString("nickname"))
+        .race(resultSet.getString("race"))
+        .raceDate(resultSet.getDate("race_date").toLocalDate())
+        .finishTimeSeconds(resultSet.getInt("finish_time_seconds"))
+        .build();
+  }
+}
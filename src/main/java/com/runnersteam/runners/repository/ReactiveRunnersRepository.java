@@ -0,0 +1,133 @@
+package com.runnersteam.runners.repository;
+
+import com.runnersteam.runners.model.OutboxEvent;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerOperation;
+import io.r2dbc.spi.Row;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.data.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the runners, runner_outbox and runner_changes tables for the reactive
+ * profile. Writes join the surrounding R2DBC transaction, if any.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveRunnersRepository {
+
+  private static final String FIND_BY_ID = "select nickname, runner_name, surname, email, "
+      + "birth_date, subscription_date, last_race, last_race_date, race_count, "
+      + "personal_best_seconds, version from runners where nickname = :nickname";
+  private static final String EXISTS_BY_ID =
+      "select count(*) from runners where nickname = :nickname";
+  private static final String INSERT = "insert into runners (nickname, runner_name, surname, "
+      + "email, birth_date, subscription_date, last_race, version) values (:nickname, :name, "
+      + ":surname, :email, :birthDate, :subscriptionDate, :lastRace, :version)";
+  private static final String UPDATE_LAST_RACE = "update runners set last_race = :lastRace, "
+      + "version = version + 1 where nickname = :nickname";
+  private static final String UPDATE_LAST_RACE_AT_VERSION = UPDATE_LAST_RACE
+      + " and version = :version";
+  private static final String DELETE_BY_ID = "delete from runners where nickname = :nickname";
+  private static final String INSERT_OUTBOX_EVENT =
+      "insert into runner_outbox (nickname, payload, content_type) "
+          + "values (:nickname, :payload, :contentType)";
+  private static final String INSERT_CHANGE =
+      "insert into runner_changes (nickname, operation, changed_at) "
+          + "values (:nickname, :operation, :changedAt)";
+
+  @Autowired
+  private DatabaseClient databaseClient;
+
+  public Mono<Runner> findById(String nickname) {
+    return databaseClient.execute(FIND_BY_ID)
+        .bind("nickname", nickname)
+        .map((row, rowMetadata) -> toRunner(row))
+        .one();
+  }
+
+  public Mono<Boolean> existsById(String nickname) {
+    return databaseClient.execute(EXISTS_BY_ID)
+        .bind("nickname", nickname)
+        .map((row, rowMetadata) -> row.get(0, Long.class))
+        .one()
+        .map(count -> count > 0);
+  }
+
+  public Mono<Void> insert(Runner runner) {
+    GenericExecuteSpec insert = databaseClient.execute(INSERT)
+        .bind("nickname", runner.getNickname());
+    insert = bind(insert, "name", runner.getName(), String.class);
+    insert = bind(insert, "surname", runner.getSurname(), String.class);
+    insert = bind(insert, "email", runner.getEmail(), String.class);
+    insert = bind(insert, "birthDate", runner.getBirthDate(), LocalDate.class);
+    insert = bind(insert, "subscriptionDate", runner.getSubscriptionDate(), LocalDate.class);
+    insert = bind(insert, "lastRace", runner.getLastRace(), String.class);
+    insert = bind(insert, "version", runner.getVersion(), Long.class);
+    return insert.then();
+  }
+
+  public Mono<Integer> updateLastRace(String nickname, String lastRace) {
+    return bind(databaseClient.execute(UPDATE_LAST_RACE), "lastRace", lastRace, String.class)
+        .bind("nickname", nickname)
+        .fetch()
+        .rowsUpdated();
+  }
+
+  public Mono<Integer> updateLastRace(String nickname, String lastRace, Long version) {
+    return bind(databaseClient.execute(UPDATE_LAST_RACE_AT_VERSION), "lastRace", lastRace,
+        String.class)
+        .bind("nickname", nickname)
+        .bind("version", version)
+        .fetch()
+        .rowsUpdated();
+  }
+
+  public Mono<Void> deleteById(String nickname) {
+    return databaseClient.execute(DELETE_BY_ID)
+        .bind("nickname", nickname)
+        .then();
+  }
+
+  public Mono<Void> insertOutboxEvent(OutboxEvent event) {
+    return databaseClient.execute(INSERT_OUTBOX_EVENT)
+        .bind("nickname", event.getNickname())
+        .bind("payload", event.getPayload())
+        .bind("contentType", event.getContentType())
+        .then();
+  }
+
+  public Mono<Void> insertChange(RunnerOperation operation, String nickname) {
+    return databaseClient.execute(INSERT_CHANGE)
+        .bind("nickname", nickname)
+        .bind("operation", operation.name())
+        .bind("changedAt", LocalDateTime.now())
+        .then();
+  }
+
+  private <T> GenericExecuteSpec bind(GenericExecuteSpec spec, String name, T value,
+      Class<T> type) {
+    return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+  }
+
+  private Runner toRunner(Row row) {
+    return Runner.builder()
+        .nickname(row.get("nickname", String.class))
+        .name(row.get("runner_name", String.class))
+        .surname(row.get("surname", String.class))
+        .email(row.get("email", String.class))
+        .birthDate(row.get("birth_date", LocalDate.class))
+        .subscriptionDate(row.get("subscription_date", LocalDate.class))
+        .lastRace(row.get("last_race", String.class))
+        .lastRaceDate(row.get("last_race_date", LocalDate.class))
+        .raceCount(row.get("race_count", Integer.class))
+        .personalBestSeconds(row.get("personal_best_seconds", Integer.class))
+        .version(row.get("version", Long.class))
+        .build();
+  }
+}
@@ -0,0 +1,66 @@
+package com.runnersteam.runners.repository;
+
+import com.runnersteam.runners.model.RunnerChange;
+import com.runnersteam.runners.model.RunnerOperation;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The runner_changes log. Callers insert inside the transaction of the change they record, so a
+ * change is logged if and only if it was committed.
+ */
+@Repository
+public class RunnerChangesRepository {
+
+  private static final String INSERT =
+      "insert into runner_changes (nickname, operation, changed_at) values (?, ?, ?)";
+  private static final String FIND_AFTER = "select seq, nickname, operation, changed_at "
+      + "from runner_changes where seq > ? order by seq limit ?";
+  private static final String FIND_LATEST_SEQUENCE =
+      "select coalesce(max(seq), 0) from runner_changes";
+  private static final String DELETE_CHANGED_BEFORE =
+      "delete from runner_changes where changed_at < ?";
+
+  @Autowired
+  private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+  public void insertAll(RunnerOperation operation, Collection<String> nicknames) {
+    if (nicknames.isEmpty()) {
+      return;
+    }
+    Timestamp changedAt = Timestamp.from(Instant.now());
+    namedParameterJdbcTemplate.getJdbcOperations().batchUpdate(INSERT,
+        new ArrayList<>(nicknames), nicknames.size(), (preparedStatement, nickname) -> {
+          preparedStatement.setString(1, nickname);
+          preparedStatement.setString(2, operation.name());
+          preparedStatement.setTimestamp(3, changedAt);
+        });
+  }
+
+  public List<RunnerChange> findAfter(long sequence, int limit) {
+    return namedParameterJdbcTemplate.getJdbcOperations().query(FIND_AFTER,
+        (resultSet, rowNum) -> RunnerChange.builder()
+            .sequence(resultSet.getLong("seq"))
+            .nickname(resultSet.getString("nickname"))
+            .operation(RunnerOperation.valueOf(resultSet.getString("operation")))
+            .changedAt(resultSet.getTimestamp("changed_at").toInstant())
+            .build(),
+        sequence, limit);
+  }
+
+  public long findLatestSequence() {
+    return namedParameterJdbcTemplate.getJdbcOperations()
+        .queryForObject(FIND_LATEST_SEQUENCE, Long.class);
+  }
+
+  public int deleteChangedBefore(Instant instant) {
+    return namedParameterJdbcTemplate.getJdbcOperations()
+        .update(DELETE_CHANGED_BEFORE, Timestamp.from(instant));
+  }
+}
@@ -0,0 +1,89 @@
+package com.runnersteam.runners.repository;
+
+import static java.util.stream.Collectors.toList;
+
+import com.runnersteam.runners.model.Runner;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * The runner_emails directory, which reserves each email for one nickname across all shards. Its
+ * email_unique constraint fails duplicate registrations as the runners table's does.
+ */
+@Repository
+public class RunnerEmailsRepository {
+
+  private static final String INSERT = "insert into runner_emails (nickname, email) values (?, ?)";
+  private static final String FIND_BY_EMAIL_IN =
+      "select nickname, email from runner_emails where email in (:emails)";
+  private static final String DELETE_BY_NICKNAME_IN =
+      "delete from runner_emails where nickname in (:nicknames)";
+  private static final String FIND_NICKNAMES_IN =
+      "select nickname from runner_emails where nickname in (:nicknames)";
+  private static final String INSERT_FROM_RUNNERS = "insert into runner_emails (nickname, email) "
+      + "select r.nickname, r.email from runners r "
+      + "where not exists (select 1 from runner_emails e where e.nickname = r.nickname)";
+
+  @Autowired
+  private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+  public void insertAll(List<Runner> runners) {
+    if (runners.isEmpty()) {
+      return;
+    }
+    namedParameterJdbcTemplate.getJdbcOperations().batchUpdate(INSERT, runners, runners.size(),
+        (preparedStatement, runner) -> {
+          preparedStatement.setString(1, runner.getNickname());
+          preparedStatement.setString(2, runner.getEmail());
+        });
+  }
+
+  /**
+   * Reserves the emails of the runners of the directory's own database that have none yet, for
+   * runners created before sharding was enabled.
+   */
+  public int insertFromRunners() {
+    return namedParameterJdbcTemplate.getJdbcOperations().update(INSERT_FROM_RUNNERS);
+  }
+
+  /** Reserves the emails of those of {@code runners}, from another shard, that have none yet. */
+  public int insertMissing(List<Runner> runners) {
+    if (runners.isEmpty()) {
+      return 0;
+    }
+    Set<String> reserved = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+        FIND_NICKNAMES_IN,
+        Map.of("nicknames", runners.stream().map(Runner::getNickname).collect(toList())),
+        String.class));
+    List<Runner> missing = runners.stream()
+        .filter(runner -> !reserved.contains(runner.getNickname()))
+        .collect(toList());
+    insertAll(missing);
+    return missing.size();
+  }
+
+  public List<Runner> findByEmailIn(Collection<String> emails) {
+    if (emails.isEmpty()) {
+      return List.of();
+    }
+    return namedParameterJdbcTemplate.query(FIND_BY_EMAIL_IN, Map.of("emails", emails),
+        (resultSet, rowNum) -> Runner.builder()
+            .nickname(resultSet.getString("nickname"))
+            .email(resultSet.getString("email"))
+            .build());
+  }
+
+  public void deleteByNicknameIn(Collection<String> nicknames) {
+    if (!nicknames.isEmpty()) {
+      namedParameterJdbcTemplate.update(DELETE_BY_NICKNAME_IN,
+          Map.of("nicknames", new ArrayList<>(nicknames)));
+    }
+  }
+}
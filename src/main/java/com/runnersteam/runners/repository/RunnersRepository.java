@@ -1,7 +1,73 @@
 package com.runnersteam.runners.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerKey;
+import com.runnersteam.runners.model.RunnerSummary;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface RunnersRepository extends JpaRepository<Runner, String>, RunnersRepositoryCustom {
+
+  List<Runner> findByNicknameInOrEmailIn(Collection<String> nicknames, Collection<String> emails);
+
+  List<Runner> findByEmailIn(Collection<String> emails);
+
+  List<RunnerSummary> findByNicknameGreaterThanOrderByNicknameAsc(String after, Pageable pageable);
+
+  @Transactional
+  @Modifying
+  @Query("update Runner r set r.lastRace = :lastRace, r.version = r.version + 1 "
+      + "where r.nickname = :nickname")
+  int updateLastRace(@Param("nickname") String nickname, @Param("lastRace") String lastRace);
+
+  @Transactional
+  @Modifying
+  @Query("update Runner r set r.lastRace = :lastRace, r.version = r.version + 1 "
+      + "where r.nickname = :nickname and r.version = :version")
+  int updateLastRace(@Param("nickname") String nickname, @Param("lastRace") String lastRace,
+      @Param("version") Long version);
+
+  /**
+   * Folds a runner's new race results into its aggregates: {@code count} results, the best of
+   * them in {@code bestSeconds} and the latest one, which only replaces the last race if it is not
+   * older. The last race is assigned before its date, as MySQL sees earlier assignments.
+   */
+  @Transactional
+  @Modifying
+  @Query("update Runner r set r.raceCount = r.raceCount + :count, "
+      + "r.personalBestSeconds = case when r.personalBestSeconds is null "
+      + "or r.personalBestSeconds > :bestSeconds then :bestSeconds else r.personalBestSeconds end, "
+      + "r.lastRace = case when r.lastRaceDate is null or r.lastRaceDate <= :raceDate "
+      + "then :race else r.lastRace end, "
+      + "r.lastRaceDate = case when r.lastRaceDate is null or r.lastRaceDate <= :raceDate "
+      + "then :raceDate else r.lastRaceDate end, "
+      + "r.version = r.version + 1 where r.nickname = :nickname")
+  int addRaceResults(@Param("nickname") String nickname, @Param("count") int count,
+      @Param("bestSeconds") int bestSeconds, @Param("race") String race,
+      @Param("raceDate") LocalDate raceDate);
+
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+      @QueryHint(name = HINT_READONLY, value = "true")})
+  @Query("select r from Runner r")
+  Stream<Runner> streamAll();
 
-public interface RunnersRepository extends JpaRepository<Runner, String> {
+  @QueryHints({
+      @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+      @QueryHint(name = HINT_READONLY, value = "true")})
+  @Query("select r.nickname as nickname, r.email as email from Runner r")
+  Stream<RunnerKey> streamKeys();
 }
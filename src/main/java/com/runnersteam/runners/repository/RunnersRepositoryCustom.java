@@ -0,0 +1,15 @@
+package com.runnersteam.runners.repository;
+
+import com.runnersteam.runners.model.Runner;
+import java.util.List;
+
+public interface RunnersRepositoryCustom {
+
+  void insert(Runner runner);
+
+  void insertAll(List<Runner> runners);
+
+  void updateLastRaces(List<Runner> runners);
+
+  void insertCopies(List<Runner> runners);
+}
@@ -0,0 +1,88 @@
+package com.runnersteam.runners.repository;
+
+import com.runnersteam.runners.model.Runner;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+public class RunnersRepositoryImpl implements RunnersRepositoryCustom {
+
+  private static final String UPDATE_LAST_RACE =
+      "update runners set last_race = ?, version = version + 1 where nickname = ?";
+  private static final String INSERT_COPY = "insert into runners (nickname, runner_name, surname, "
+      + "email, birth_date, subscription_date, last_race, last_race_date, race_count, "
+      + "personal_best_seconds, version) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+  private int batchSize;
+
+  @Override
+  @Transactional
+  public void insert(Runner runner) {
+    entityManager.persist(runner);
+    entityManager.flush();
+  }
+
+  @Override
+  @Transactional
+  public void insertAll(List<Runner> runners) {
+    for (int i = 0; i < runners.size(); i++) {
+      entityManager.persist(runners.get(i));
+      if ((i + 1) % batchSize == 0) {
+        entityManager.flush();
+        entityManager.clear();
+      }
+    }
+    entityManager.flush();
+    entityManager.clear();
+  }
+
+  @Override
+  @Transactional
+  public void updateLastRaces(List<Runner> runners) {
+    namedParameterJdbcTemplate.getJdbcOperations().batchUpdate(UPDATE_LAST_RACE, runners,
+        batchSize, (preparedStatement, runner) -> {
+          preparedStatement.setString(1, runner.getLastRace());
+          preparedStatement.setString(2, runner.getNickname());
+        });
+  }
+
+  /**
+   * Inserts runners read from another shard as they are, including the aggregates and the
+   * version, which the entity does not insert.
+   */
+  @Override
+  @Transactional
+  public void insertCopies(List<Runner> runners) {
+    namedParameterJdbcTemplate.getJdbcOperations().batchUpdate(INSERT_COPY, runners, batchSize,
+        (preparedStatement, runner) -> {
+          preparedStatement.setString(1, runner.getNickname());
+          preparedStatement.setString(2, runner.getName());
+          preparedStatement.setString(3, runner.getSurname());
+          preparedStatement.setString(4, runner.getEmail());
+          preparedStatement.setObject(5, toDate(runner.getBirthDate()));
+          preparedStatement.setObject(6, toDate(runner.getSubscriptionDate()));
+          preparedStatement.setString(7, runner.getLastRace());
+          preparedStatement.setObject(8, toDate(runner.getLastRaceDate()));
+          preparedStatement.setObject(9, runner.getRaceCount() == null ? 0 : runner.getRaceCount());
+          preparedStatement.setObject(10, runner.getPersonalBestSeconds());
+          preparedStatement.setObject(11, runner.getVersion());
+        });
+  }
+
+  private Date toDate(LocalDate localDate) {
+    return localDate == null ? null : Date.valueOf(localDate);
+  }
+}
@@ -0,0 +1,194 @@
+package com.runnersteam.runners.service;
+
+import static java.util.Comparator.comparingInt;
+import static java.util.stream.Collectors.toList;
+
+import com.runnersteam.runners.cache.RunnersCache;
+import com.runnersteam.runners.cache.RunnersExistenceFilter;
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.RaceResult;
+import com.runnersteam.runners.model.RaceResultReject;
+import com.runnersteam.runners.model.RaceResultsReceipt;
+import com.runnersteam.runners.model.RunnerOperation;
+import com.runnersteam.runners.repository.RaceResultsRepository;
+import com.runnersteam.runners.repository.RunnerChangesRepository;
+import com.runnersteam.runners.repository.RunnersRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Service
+@Slf4j
+public class RaceResultsService {
+
+  private static final int NICKNAME_LENGTH = 100;
+  private static final int RACE_LENGTH = 250;
+  private static final int MAX_HISTORY_SIZE = 1000;
+  private static final String RUNNER_NOT_FOUND = "runner not found";
+  private static final String NOT_STORED = "not stored, retry";
+
+  @Autowired
+  private RunnersRepository runnersRepository;
+
+  @Autowired
+  private RaceResultsRepository raceResultsRepository;
+
+  @Autowired
+  private RunnersExistenceFilter runnersExistenceFilter;
+
+  @Autowired
+  private RunnersCache runnersCache;
+
+  @Autowired
+  private RunnerChangesRepository runnerChangesRepository;
+
+  @Autowired
+  private RunnerShards runnerShards;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate shardTransaction;
+
+  @PostConstruct
+  public void init() {
+    shardTransaction = new TransactionTemplate(transactionManager);
+    shardTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+  }
+
+  /**
+   * Appends the valid results of known runners to the history and folds them into their runners'
+   * aggregates, with one update per runner rather than per result. Runners are updated in
+   * nickname order, so concurrent batches lock their rows in the same order. Each shard commits
+   * in a transaction of its own, so the receipt tells per result whether its shard committed:
+   * the results of a shard that failed are rejected as not stored, to be sent again, while those
+   * of the other shards stay accepted. Only when no shard committed is the failure thrown.
+   */
+  public RaceResultsReceipt addAll(List<RaceResult> results) {
+    List<RaceResultReject> rejected = new ArrayList<>();
+    Map<String, List<Integer>> indexesByRunner = new TreeMap<>();
+    for (int index = 0; index < results.size(); index++) {
+      RaceResult result = results.get(index);
+      String violation = validate(result);
+      if (violation != null) {
+        rejected.add(new RaceResultReject(index, result.getNickname(), violation));
+      } else {
+        indexesByRunner.computeIfAbsent(key(result.getNickname()), key -> new ArrayList<>())
+            .add(index);
+      }
+    }
+
+    int accepted = 0;
+    int committed = 0;
+    RuntimeException failure = null;
+    List<String> updated = new ArrayList<>();
+    Map<Integer, List<List<Integer>>> indexesByShard = runnerShards.byShard(
+        indexesByRunner.values(), indexes -> results.get(indexes.get(0)).getNickname());
+    for (Map.Entry<Integer, List<List<Integer>>> shard : indexesByShard.entrySet()) {
+      List<String> shardUpdated = new ArrayList<>();
+      List<RaceResultReject> shardRejected = new ArrayList<>();
+      try {
+        accepted += runnerShards.inTransactionOnShard(shard.getKey(), shardTransaction,
+            () -> addAllOnShard(results, shard.getValue(), shardUpdated, shardRejected));
+        committed++;
+        updated.addAll(shardUpdated);
+        rejected.addAll(shardRejected);
+      } catch (RuntimeException runtimeException) {
+        log.error("addAll-not stored on shard " + shard.getKey(), runtimeException);
+        failure = runtimeException;
+        shard.getValue().stream().flatMap(List::stream).forEach(index -> rejected.add(
+            new RaceResultReject(index, results.get(index).getNickname(), NOT_STORED)));
+      }
+    }
+    if (failure != null && committed == 0) {
+      throw failure;
+    }
+    rejected.sort(comparingInt(RaceResultReject::getIndex));
+
+    if (!updated.isEmpty()) {
+      runnersCache.invalidateAll(updated);
+    }
+    return new RaceResultsReceipt(accepted, rejected);
+  }
+
+  private int addAllOnShard(List<RaceResult> results, List<List<Integer>> indexesByRunner,
+      List<String> updated, List<RaceResultReject> rejected) {
+    List<RaceResult> accepted = new ArrayList<>();
+    for (List<Integer> indexes : indexesByRunner) {
+      List<RaceResult> runnerResults = indexes.stream().map(results::get).collect(toList());
+      if (addToAggregates(runnerResults)) {
+        accepted.addAll(runnerResults);
+        updated.add(runnerResults.get(0).getNickname());
+      } else {
+        indexes.forEach(index ->
+            rejected.add(new RaceResultReject(index, results.get(index).getNickname(),
+                RUNNER_NOT_FOUND)));
+      }
+    }
+    if (!accepted.isEmpty()) {
+      raceResultsRepository.insertAll(accepted);
+      runnerChangesRepository.insertAll(RunnerOperation.UPDATE, updated);
+    }
+    return accepted.size();
+  }
+
+  @Transactional(readOnly = true)
+  public List<RaceResult> findLatest(String nickname, int limit) {
+    if (runnersExistenceFilter.excludesNickname(nickname)) {
+      return List.of();
+    }
+    return runnerShards.onShard(runnerShards.shardOf(nickname),
+        () -> raceResultsRepository.findLatestByNickname(nickname,
+            Math.max(1, Math.min(limit, MAX_HISTORY_SIZE))));
+  }
+
+  private boolean addToAggregates(List<RaceResult> runnerResults) {
+    String nickname = runnerResults.get(0).getNickname();
+    RaceResult latest = runnerResults.get(0);
+    int bestSeconds = latest.getFinishTimeSeconds();
+    for (RaceResult result : runnerResults) {
+      if (!result.getRaceDate().isBefore(latest.getRaceDate())) {
+        latest = result;
+      }
+      bestSeconds = Math.min(bestSeconds, result.getFinishTimeSeconds());
+    }
+    return runnersRepository.addRaceResults(nickname, runnerResults.size(), bestSeconds,
+        latest.getRace(), latest.getRaceDate()) > 0;
+  }
+
+  private String validate(RaceResult result) {
+    if (result.getNickname() == null || result.getNickname().isEmpty()) {
+      return "nickname is required";
+    }
+    if (result.getNickname().length() > NICKNAME_LENGTH) {
+      return "nickname exceeds " + NICKNAME_LENGTH + " characters";
+    }
+    if (result.getRace() == null || result.getRace().isEmpty()) {
+      return "race is required";
+    }
+    if (result.getRace().length() > RACE_LENGTH) {
+      return "race exceeds " + RACE_LENGTH + " characters";
+    }
+    if (result.getRaceDate() == null) {
+      return "raceDate is required";
+    }
+    if (result.getFinishTimeSeconds() == null || result.getFinishTimeSeconds() <= 0) {
+      return "finishTimeSeconds must be positive";
+    }
+    return null;
+  }
+
+  private String key(String value) {
+    return value.toLowerCase(Locale.ROOT);
+  }
+}
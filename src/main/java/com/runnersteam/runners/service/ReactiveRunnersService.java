@@ -0,0 +1,122 @@
+package com.runnersteam.runners.service;
+
+import static com.runnersteam.runners.service.RunnersService.toExistingRunnerException;
+import static java.time.LocalDate.now;
+
+import com.runnersteam.runners.cache.RunnersCache;
+import com.runnersteam.runners.cache.RunnersExistenceFilter;
+import com.runnersteam.runners.exception.RunnerNotFoundException;
+import com.runnersteam.runners.exception.RunnerVersionMismatchException;
+import com.runnersteam.runners.messaging.RunnerRegistrationOutbox;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerOperation;
+import com.runnersteam.runners.repository.ReactiveRunnersRepository;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Reactive counterpart of {@link RunnersService} for the single runner endpoints. Registration
+ * events go to the outbox, and changes to the change log, in the same R2DBC transaction as the
+ * runner; near cache invalidations are broadcast once that transaction has committed, off the
+ * event loop since the binder send blocks.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveRunnersService {
+
+  @Autowired
+  private ReactiveRunnersRepository reactiveRunnersRepository;
+
+  @Autowired
+  private RunnerRegistrationOutbox runnerRegistrationOutbox;
+
+  @Autowired
+  private RunnersCache runnersCache;
+
+  @Autowired
+  private RunnersExistenceFilter runnersExistenceFilter;
+
+  @Autowired
+  private TransactionalOperator transactionalOperator;
+
+  public Mono<Runner> findByNickname(String nickname) {
+    if (runnersExistenceFilter.excludesNickname(nickname)) {
+      return Mono.empty();
+    }
+    return reactiveRunnersRepository.findById(nickname);
+  }
+
+  public Mono<Runner> create(Runner runner) {
+    Runner toCreate = runner.toBuilder().subscriptionDate(now()).version(0L).raceCount(0).build();
+    runnersExistenceFilter.put(toCreate);
+    return reactiveRunnersRepository.insert(toCreate)
+        .then(Mono.fromCallable(() -> runnerRegistrationOutbox.toEvent(toCreate)))
+        .flatMap(reactiveRunnersRepository::insertOutboxEvent)
+        .then(Mono.defer(() ->
+            reactiveRunnersRepository.insertChange(RunnerOperation.CREATE, toCreate.getNickname())))
+        .as(transactionalOperator::transactional)
+        .onErrorMap(DataIntegrityViolationException.class, dataIntegrityViolationException ->
+            toExistingRunnerException(toCreate, dataIntegrityViolationException))
+        .then(Mono.<Void>fromRunnable(() -> runnersCache.registered(List.of(toCreate)))
+            .subscribeOn(Schedulers.boundedElastic()))
+        .thenReturn(toCreate);
+  }
+
+  public Mono<Runner> update(Runner runner) {
+    return doUpdateLastRace(runner)
+        .then(reactiveRunnersRepository.findById(runner.getNickname()))
+        .as(transactionalOperator::transactional)
+        .flatMap(updated -> invalidate(runner.getNickname()).thenReturn(updated))
+        .switchIfEmpty(Mono.error(() -> runnerNotFound(runner.getNickname())));
+  }
+
+  public Mono<Void> updateLastRace(Runner runner) {
+    return doUpdateLastRace(runner)
+        .as(transactionalOperator::transactional)
+        .then(invalidate(runner.getNickname()));
+  }
+
+  public Mono<Void> deleteByNickName(String nickname) {
+    return reactiveRunnersRepository.deleteById(nickname)
+        .then(reactiveRunnersRepository.insertChange(RunnerOperation.DELETE, nickname))
+        .as(transactionalOperator::transactional)
+        .then(invalidate(nickname));
+  }
+
+  private Mono<Void> doUpdateLastRace(Runner runner) {
+    String nickname = runner.getNickname();
+    Long expectedVersion = runner.getVersion();
+    Mono<Integer> updated = expectedVersion == null
+        ? reactiveRunnersRepository.updateLastRace(nickname, runner.getLastRace())
+        : reactiveRunnersRepository.updateLastRace(nickname, runner.getLastRace(), expectedVersion);
+    return updated.flatMap(rows -> rows > 0
+        ? reactiveRunnersRepository.insertChange(RunnerOperation.UPDATE, nickname)
+        : updateFailure(nickname, expectedVersion));
+  }
+
+  private Mono<Void> updateFailure(String nickname, Long expectedVersion) {
+    if (expectedVersion == null) {
+      return Mono.error(runnerNotFound(nickname));
+    }
+    return reactiveRunnersRepository.existsById(nickname)
+        .flatMap(exists -> Mono.<Void>error(exists
+            ? new RunnerVersionMismatchException(
+                "Runner with nickname " + nickname + " is not at version " + expectedVersion)
+            : runnerNotFound(nickname)));
+  }
+
+  private Mono<Void> invalidate(String nickname) {
+    return Mono.<Void>fromRunnable(() -> runnersCache.invalidate(nickname))
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private RunnerNotFoundException runnerNotFound(String nickname) {
+    return new RunnerNotFoundException("Runner with nickname " + nickname + " does not exist");
+  }
+}
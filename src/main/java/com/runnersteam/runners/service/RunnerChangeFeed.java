@@ -0,0 +1,186 @@
+package com.runnersteam.runners.service;
+
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.RunnerChange;
+import com.runnersteam.runners.model.RunnerChangesPage;
+import com.runnersteam.runners.repository.RunnerChangesRepository;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Serves the runner_changes log by sequence. Sequences are allocated before commit, so a
+ * transaction can commit a lower sequence after a higher one was read; a page therefore stops at
+ * a gap until it is older than {@code runners.changes.settle}, after which it is taken for a
+ * rollback. A change whose transaction commits later than that after its insert is skipped for
+ * good, so settle must stay above the longest transaction writing changes, lock waits included,
+ * which is why it defaults to more than innodb_lock_wait_timeout; a rollback stalls the feed for
+ * as long. changed_at comes from the clock of the instance that wrote the change and is compared
+ * with the clock of the instance serving the page, so clock skew between instances shortens or
+ * lengthens the settle. Consumers must therefore tolerate missed changes, by reconciling
+ * periodically for instance. Waiting long polls and event streams are served by one poll of the
+ * latest sequence every {@code runners.changes.poll-interval} milliseconds, which also sees the
+ * changes of the other instances. With sharding every shard keeps its own log, each followed with
+ * its own cursor.
+ */
+@Component
+@Slf4j
+public class RunnerChangeFeed {
+
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final long MAX_WAIT_MILLIS = 30000;
+  private static final String CHANGE_EVENT = "change";
+
+  @Value("${runners.changes.settle:60s}")
+  private Duration settle;
+
+  @Value("${runners.changes.retention:7d}")
+  private Duration retention;
+
+  @Value("${runners.changes.stream-timeout:5m}")
+  private Duration streamTimeout;
+
+  @Autowired
+  private RunnerChangesRepository runnerChangesRepository;
+
+  @Autowired
+  private RunnerShards runnerShards;
+
+  private final Queue<Poll> polls = new ConcurrentLinkedQueue<>();
+  private final Queue<Stream> streams = new ConcurrentLinkedQueue<>();
+
+  public RunnerChangesPage changesSince(int shard, long since, int limit) {
+    List<RunnerChange> found = runnerShards.onShard(shard, () -> runnerChangesRepository
+        .findAfter(since, Math.max(1, Math.min(limit, MAX_PAGE_SIZE))));
+    Instant settled = Instant.now().minus(settle);
+    List<RunnerChange> changes = new ArrayList<>(found.size());
+    long next = since;
+    for (RunnerChange change : found) {
+      if (change.getSequence() != next + 1 && change.getChangedAt().isAfter(settled)) {
+        break;
+      }
+      changes.add(change);
+      next = change.getSequence();
+    }
+    return new RunnerChangesPage(changes, next);
+  }
+
+  public DeferredResult<RunnerChangesPage> poll(int shard, long since, int limit,
+      long waitMillis) {
+    long timeout = Math.max(0, Math.min(waitMillis, MAX_WAIT_MILLIS));
+    DeferredResult<RunnerChangesPage> result = new DeferredResult<>(timeout,
+        () -> new RunnerChangesPage(List.of(), since));
+    RunnerChangesPage page = changesSince(shard, since, limit);
+    if (!page.getChanges().isEmpty() || timeout == 0) {
+      result.setResult(page);
+      return result;
+    }
+    Poll poll = new Poll(shard, since, limit, result);
+    polls.add(poll);
+    result.onCompletion(() -> polls.remove(poll));
+    return result;
+  }
+
+  public SseEmitter stream(int shard, long since) {
+    SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+    Stream stream = new Stream(shard, since, emitter);
+    streams.add(stream);
+    emitter.onCompletion(() -> streams.remove(stream));
+    emitter.onTimeout(emitter::complete);
+    return emitter;
+  }
+
+  @Scheduled(fixedDelayString = "${runners.changes.poll-interval:250}")
+  public void publish() {
+    if (polls.isEmpty() && streams.isEmpty()) {
+      return;
+    }
+    Map<Integer, Long> latest = new HashMap<>();
+    for (Poll poll : polls) {
+      if (latestSequence(latest, poll.shard) > poll.since) {
+        RunnerChangesPage page = changesSince(poll.shard, poll.since, poll.limit);
+        if (!page.getChanges().isEmpty()) {
+          poll.result.setResult(page);
+        }
+      }
+    }
+    for (Stream stream : streams) {
+      send(stream, latestSequence(latest, stream.shard));
+    }
+  }
+
+  private long latestSequence(Map<Integer, Long> latest, int shard) {
+    return latest.computeIfAbsent(shard,
+        key -> runnerShards.onShard(shard, runnerChangesRepository::findLatestSequence));
+  }
+
+  @Scheduled(fixedDelayString = "${runners.changes.purge-interval:3600000}")
+  public void purge() {
+    Instant before = Instant.now().minus(retention);
+    int purged = runnerShards.onEachShard(shard -> runnerChangesRepository
+        .deleteChangedBefore(before)).stream().mapToInt(Integer::intValue).sum();
+    if (purged > 0) {
+      log.info("purge-" + purged + " changes");
+    }
+  }
+
+  private void send(Stream stream, long latest) {
+    try {
+      while (latest > stream.cursor) {
+        RunnerChangesPage page = changesSince(stream.shard, stream.cursor, MAX_PAGE_SIZE);
+        if (page.getChanges().isEmpty()) {
+          return;
+        }
+        for (RunnerChange change : page.getChanges()) {
+          stream.emitter.send(SseEmitter.event()
+              .id(String.valueOf(change.getSequence()))
+              .name(CHANGE_EVENT)
+              .data(change));
+        }
+        stream.cursor = page.getNext();
+      }
+    } catch (IOException | IllegalStateException exception) {
+      streams.remove(stream);
+      stream.emitter.completeWithError(exception);
+    }
+  }
+
+  private static final class Poll {
+    private final int shard;
+    private final long since;
+    private final int limit;
+    private final DeferredResult<RunnerChangesPage> result;
+
+    private Poll(int shard, long since, int limit, DeferredResult<RunnerChangesPage> result) {
+      this.shard = shard;
+      this.since = since;
+      this.limit = limit;
+      this.result = result;
+    }
+  }
+
+  private static final class Stream {
+    private final int shard;
+    private volatile long cursor;
+    private final SseEmitter emitter;
+
+    private Stream(int shard, long cursor, SseEmitter emitter) {
+      this.shard = shard;
+      this.cursor = cursor;
+      this.emitter = emitter;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package com.runnersteam.runners.service;
+
+import static com.fasterxml.jackson.databind.MapperFeature.SORT_PROPERTIES_ALPHABETICALLY;
+import static com.runnersteam.runners.model.ExportFormat.CSV;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.runnersteam.runners.model.ExportFormat;
+import com.runnersteam.runners.model.Runner;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class RunnersExporter {
+
+  private final CsvMapper csvMapper = (CsvMapper) new CsvMapper()
+      .disable(SORT_PROPERTIES_ALPHABETICALLY);
+
+  @Autowired
+  private RunnersService runnersService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /**
+   * Writes every runner as a CSV row after a header, or as an NDJSON line, each ending with a
+   * newline, the last one included, as line oriented consumers expect.
+   */
+  public void export(ExportFormat format, OutputStream outputStream) throws IOException {
+    if (format == CSV) {
+      try (SequenceWriter writer = csvMapper.writerFor(Runner.class)
+          .with(csvMapper.schemaFor(Runner.class).withHeader())
+          .writeValues(outputStream)) {
+        runnersService.export(runner -> write(() -> writer.write(runner)));
+      }
+      return;
+    }
+    ObjectWriter writer = objectMapper.writerFor(Runner.class);
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+      generator.setRootValueSeparator(null);
+      runnersService.export(runner -> write(() -> {
+        writer.writeValue(generator, runner);
+        generator.writeRaw('\n');
+      }));
+    }
+  }
+
+  private void write(IoAction action) {
+    try {
+      action.run();
+    } catch (IOException ioException) {
+      throw new UncheckedIOException(ioException);
+    }
+  }
+
+  private interface IoAction {
+
+    void run() throws IOException;
+  }
+}
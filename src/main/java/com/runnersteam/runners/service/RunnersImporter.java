@@ -0,0 +1,187 @@
+package com.runnersteam.runners.service;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+import static com.runnersteam.runners.model.RunnerCreationStatus.CREATED;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerCreationResult;
+import com.runnersteam.runners.model.RunnerImportProgress;
+import com.runnersteam.runners.model.RunnerImportReject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports a CSV upload row by row. Rows are validated against the runners table constraints in
+ * memory and created in chunks through {@link RunnersService#createAll}, so each chunk is one
+ * transaction with one outbox write. Rejects and a progress line per chunk are written as NDJSON,
+ * each line ending with a newline, while the upload is still being read; only the current chunk
+ * is ever held in memory.
+ */
+@Component
+public class RunnersImporter {
+
+  private static final int NICKNAME_LENGTH = 100;
+  private static final int NAME_LENGTH = 250;
+  private static final int EMAIL_LENGTH = 255;
+  private static final String DUPLICATE = "duplicate nickname or email";
+
+  private final CsvMapper csvMapper = (CsvMapper) new CsvMapper()
+      .enable(CsvParser.Feature.SKIP_EMPTY_LINES)
+      .enable(CsvParser.Feature.TRIM_SPACES)
+      .disable(FAIL_ON_UNKNOWN_PROPERTIES);
+
+  @Autowired
+  private RunnersService runnersService;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Value("${runners.import.chunk-size:1000}")
+  private int chunkSize;
+
+  public void importCsv(InputStream inputStream, OutputStream outputStream) throws IOException {
+    try (MappingIterator<Runner> rows = csvMapper.readerFor(Runner.class)
+        .with(CsvSchema.emptySchema().withHeader())
+        .readValues(inputStream);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+      generator.setRootValueSeparator(null);
+      Progress progress = new Progress(objectMapper.writer(), generator);
+      List<Runner> chunk = new ArrayList<>(chunkSize);
+      List<Long> lines = new ArrayList<>(chunkSize);
+      while (rows.hasNextValue()) {
+        long line = rows.getCurrentLocation().getLineNr();
+        Runner runner;
+        try {
+          runner = rows.nextValue();
+        } catch (JsonProcessingException jsonProcessingException) {
+          progress.reject(line, null, jsonProcessingException.getOriginalMessage());
+          continue;
+        }
+        String violation = validate(runner);
+        if (violation != null) {
+          progress.reject(line, runner.getNickname(), violation);
+          continue;
+        }
+        chunk.add(runner);
+        lines.add(line);
+        if (chunk.size() == chunkSize) {
+          createChunk(chunk, lines, progress);
+        }
+      }
+      if (!chunk.isEmpty()) {
+        createChunk(chunk, lines, progress);
+      }
+      progress.report();
+    }
+  }
+
+  /**
+   * A constraint violation, from a runner created concurrently, fails the whole chunk, so its
+   * rows are then created one by one to reject only the duplicates.
+   */
+  private void createChunk(List<Runner> chunk, List<Long> lines, Progress progress)
+      throws IOException {
+    try {
+      report(runnersService.createAll(chunk), lines, progress);
+    } catch (DataIntegrityViolationException chunkViolation) {
+      for (int i = 0; i < chunk.size(); i++) {
+        try {
+          report(runnersService.createAll(List.of(chunk.get(i))), lines.subList(i, i + 1),
+              progress);
+        } catch (DataIntegrityViolationException rowViolation) {
+          progress.reject(lines.get(i), chunk.get(i).getNickname(), DUPLICATE);
+        }
+      }
+    }
+    chunk.clear();
+    lines.clear();
+    progress.report();
+  }
+
+  private void report(List<RunnerCreationResult> results, List<Long> lines, Progress progress)
+      throws IOException {
+    for (int i = 0; i < results.size(); i++) {
+      RunnerCreationResult result = results.get(i);
+      if (result.getStatus() == CREATED) {
+        progress.imported++;
+      } else {
+        progress.reject(lines.get(i), result.getNickname(), result.getStatus().name());
+      }
+    }
+  }
+
+  private String validate(Runner runner) {
+    String violation = checkLength("nickname", runner.getNickname(), NICKNAME_LENGTH, true);
+    if (violation == null) {
+      violation = checkLength("name", runner.getName(), NAME_LENGTH, true);
+    }
+    if (violation == null) {
+      violation = checkLength("surname", runner.getSurname(), NAME_LENGTH, true);
+    }
+    if (violation == null) {
+      violation = checkLength("email", runner.getEmail(), EMAIL_LENGTH, true);
+    }
+    if (violation == null && runner.getBirthDate() == null) {
+      violation = "birthDate is required";
+    }
+    if (violation == null) {
+      violation = checkLength("lastRace", runner.getLastRace(), NAME_LENGTH, false);
+    }
+    return violation;
+  }
+
+  private String checkLength(String field, String value, int maxLength, boolean required) {
+    if (value == null || value.isEmpty()) {
+      return required ? field + " is required" : null;
+    }
+    return value.length() > maxLength ? field + " exceeds " + maxLength + " characters" : null;
+  }
+
+  private static class Progress {
+
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+    private long imported;
+    private long rejected;
+    private long reported = -1;
+
+    Progress(ObjectWriter writer, JsonGenerator generator) {
+      this.writer = writer;
+      this.generator = generator;
+    }
+
+    void reject(long line, String nickname, String reason) throws IOException {
+      rejected++;
+      write(new RunnerImportReject(line, nickname, reason));
+    }
+
+    void report() throws IOException {
+      long processed = imported + rejected;
+      if (processed != reported) {
+        reported = processed;
+        write(new RunnerImportProgress(processed, imported, rejected));
+        generator.flush();
+      }
+    }
+
+    private void write(Object line) throws IOException {
+      writer.writeValue(generator, line);
+      generator.writeRaw('\n');
+    }
+  }
+}
@@ -1,64 +1,457 @@
 package com.runnersteam.runners.service;
 
-import static java.util.Optional.ofNullable;
-import static org.springframework.messaging.support.MessageBuilder.withPayload;
+import static com.runnersteam.runners.model.RunnerCreationStatus.CREATED;
+import static com.runnersteam.runners.model.RunnerCreationStatus.DUPLICATE_EMAIL;
+import static com.runnersteam.runners.model.RunnerCreationStatus.DUPLICATE_NICKNAME;
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
+import com.runnersteam.runners.cache.LastRaceWriteBuffer;
+import com.runnersteam.runners.cache.RunnersCache;
+import com.runnersteam.runners.cache.RunnersExistenceFilter;
+import com.runnersteam.runners.config.RunnerShards;
 import com.runnersteam.runners.exception.ExistingRunnerException;
 import com.runnersteam.runners.exception.RunnerNotFoundException;
+import com.runnersteam.runners.exception.RunnerVersionMismatchException;
+import com.runnersteam.runners.messaging.RunnerRegistrationOutbox;
 import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerCreationResult;
+import com.runnersteam.runners.model.RunnerOperation;
+import com.runnersteam.runners.model.RunnerSummary;
+import com.runnersteam.runners.model.RunnersLookup;
+import com.runnersteam.runners.model.RunnersPage;
+import com.runnersteam.runners.repository.RunnerChangesRepository;
+import com.runnersteam.runners.repository.RunnerEmailsRepository;
 import com.runnersteam.runners.repository.RunnersRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.MessageChannel;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class RunnersService {
 
+  private static final String EMAIL_UNIQUE_CONSTRAINT = "email_unique";
+  private static final String PRIMARY_KEY_CONSTRAINT = "primary";
+  // MySQL ends with "for key '[table.]name'", H2 starts with "... violation: "[schema.]name ON"
+  private static final Pattern MYSQL_CONSTRAINT_NAME =
+      Pattern.compile("for key '(?:\\w+\\.)?([^']+)'\\s*$");
+  private static final Pattern H2_CONSTRAINT_NAME =
+      Pattern.compile("^[^'\"]*violation: \"?(?:\\w+\\.)?(PRIMARY KEY|\\w+)");
+  private static final Pattern PLAIN_NAME = Pattern.compile("(?:\\w+\\.)?(\\w+)");
+  private static final int MAX_PAGE_SIZE = 1000;
+  private static final int LOOKUP_CHUNK_SIZE = 500;
+
   @Autowired
   private RunnersRepository runnersRepository;
 
   @Autowired
-  private MessageChannel newRunnerRegistrationOutput;
+  private RunnerRegistrationOutbox runnerRegistrationOutbox;
+
+  @Autowired
+  private RunnersCache runnersCache;
+
+  @Autowired
+  private RunnersExistenceFilter runnersExistenceFilter;
+
+  @Autowired
+  private LastRaceWriteBuffer lastRaceWriteBuffer;
+
+  @Autowired
+  private RunnerChangesRepository runnerChangesRepository;
+
+  @Autowired
+  private RunnerEmailsRepository runnerEmailsRepository;
+
+  @Autowired
+  private RunnerShards runnerShards;
+
+  @PersistenceContext
+  private EntityManager entityManager;
 
   public Optional<Runner> findByNickname(String nickname) {
-    return runnersRepository.findById(nickname);
+    if (runnersExistenceFilter.excludesNickname(nickname)) {
+      return Optional.empty();
+    }
+    return runnersCache.get(nickname, this::load).map(this::withPendingLastRace);
+  }
+
+  private Optional<Runner> load(String nickname) {
+    return runnerShards.onShard(runnerShards.shardOf(nickname),
+        () -> runnersRepository.findById(nickname));
+  }
+
+  private Runner withPendingLastRace(Runner runner) {
+    return lastRaceWriteBuffer.pending(runner.getNickname())
+        .map(pending -> withBufferedLastRace(runner, pending))
+        .orElse(runner);
+  }
+
+  /**
+   * Resolves the nicknames in request order, duplicates once. Cached runners and nicknames the
+   * existence filter excludes skip the database, the others are loaded by chunks of
+   * {@value #LOOKUP_CHUNK_SIZE} and cached, including the ones not found.
+   */
+  @Transactional(readOnly = true)
+  public RunnersLookup findAllByNickname(List<String> nicknames) {
+    Set<String> requested = new LinkedHashSet<>(nicknames);
+    List<String> candidates = requested.stream()
+        .filter(nickname -> !runnersExistenceFilter.excludesNickname(nickname))
+        .collect(toList());
+    Map<String, Optional<Runner>> found = runnersCache.getAll(candidates, this::loadAll);
+
+    List<Runner> runners = new ArrayList<>();
+    List<String> missing = new ArrayList<>();
+    for (String nickname : requested) {
+      Optional<Runner> runner = found.getOrDefault(nickname, Optional.empty());
+      if (runner.isPresent()) {
+        runners.add(withPendingLastRace(runner.get()));
+      } else {
+        missing.add(nickname);
+      }
+    }
+    return new RunnersLookup(runners, missing);
   }
 
+  private Map<String, Optional<Runner>> loadAll(Set<String> nicknames) {
+    Map<String, Runner> loaded = new HashMap<>();
+    runnerShards.byShard(nicknames, nickname -> nickname).forEach((shard, toLoad) ->
+        runnerShards.runOnShard(shard, () -> {
+          for (int from = 0; from < toLoad.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk =
+                toLoad.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, toLoad.size()));
+            runnersRepository.findAllById(chunk)
+                .forEach(runner -> loaded.put(key(runner.getNickname()), runner));
+          }
+        }));
+    Map<String, Optional<Runner>> found = new HashMap<>();
+    nicknames.forEach(nickname ->
+        found.put(nickname, Optional.ofNullable(loaded.get(key(nickname)))));
+    return found;
+  }
+
+  @Transactional
   public Runner create(Runner runner) {
-    if (existRunner(runner)) {
-      throw new ExistingRunnerException("Runner with " + runner.getNickname() + " already exists");
+    runner.setRaceCount(0);
+    runnersExistenceFilter.put(runner);
+    reserveEmails(List.of(runner));
+    try {
+      runnerShards.runOnShard(runnerShards.shardOf(runner.getNickname()), () -> {
+        try {
+          runnersRepository.insert(runner);
+        } catch (DataIntegrityViolationException dataIntegrityViolationException) {
+          throw toExistingRunnerException(runner, dataIntegrityViolationException);
+        }
+        runnerRegistrationOutbox.add(runner);
+        runnerChangesRepository.insertAll(RunnerOperation.CREATE, List.of(runner.getNickname()));
+      });
+    } catch (RuntimeException runtimeException) {
+      if (runnerShards.isSharded()) {
+        releaseEmails(List.of(runner.getNickname()));
+      }
+      throw runtimeException;
+    }
+    runnersCache.registered(List.of(runner));
+    return runner;
+  }
+
+  /**
+   * With sharding, the email uniqueness the runners table can only check within a shard is
+   * checked by reserving emails in the directory before the runners are created on their shards.
+   * Reservations are released if the creation fails.
+   */
+  private void reserveEmails(List<Runner> runners) {
+    if (!runnerShards.isSharded() || runners.isEmpty()) {
+      return;
+    }
+    runnerShards.runOnShard(RunnerShards.DIRECTORY_SHARD, () -> {
+      try {
+        runnerEmailsRepository.insertAll(runners);
+      } catch (DataIntegrityViolationException dataIntegrityViolationException) {
+        throw runners.size() == 1
+            ? toExistingRunnerException(runners.get(0), dataIntegrityViolationException)
+            : dataIntegrityViolationException;
+      }
+    });
+  }
+
+  private void releaseEmails(List<String> nicknames) {
+    runnerShards.runOnShard(RunnerShards.DIRECTORY_SHARD,
+        () -> runnerEmailsRepository.deleteByNicknameIn(nicknames));
+  }
+
+  static RuntimeException toExistingRunnerException(Runner runner,
+      DataIntegrityViolationException dataIntegrityViolationException) {
+    String constraint = violatedConstraint(dataIntegrityViolationException);
+    if (constraint.contains(EMAIL_UNIQUE_CONSTRAINT)) {
+      return new ExistingRunnerException(
+          "Runner with email " + runner.getEmail() + " already exists");
+    }
+    if (constraint.startsWith(PRIMARY_KEY_CONSTRAINT)) {
+      return new ExistingRunnerException(
+          "Runner with " + runner.getNickname() + " already exists");
+    }
+    return dataIntegrityViolationException;
+  }
+
+  /**
+   * The lowercased name of the violated constraint, never any part of the duplicate values, or
+   * an empty string if it cannot be told.
+   */
+  private static String violatedConstraint(DataIntegrityViolationException exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConstraintViolationException) {
+        String name = ((ConstraintViolationException) cause).getConstraintName();
+        Matcher plainName = PLAIN_NAME.matcher(String.valueOf(name));
+        if (name != null && plainName.matches()) {
+          return plainName.group(1).toLowerCase(Locale.ROOT);
+        }
+      }
+    }
+    String message = String.valueOf(exception.getMostSpecificCause().getMessage());
+    for (Pattern pattern : List.of(MYSQL_CONSTRAINT_NAME, H2_CONSTRAINT_NAME)) {
+      Matcher matcher = pattern.matcher(message);
+      if (matcher.find()) {
+        return matcher.group(1).toLowerCase(Locale.ROOT);
+      }
+    }
+    return "";
+  }
+
+  @Transactional
+  public List<RunnerCreationResult> createAll(List<Runner> runners) {
+    if (runners.isEmpty()) {
+      return List.of();
+    }
+    List<Runner> existing = findExisting(runners);
+    Set<String> takenNicknames = existing.stream().map(Runner::getNickname).map(this::key)
+        .collect(toCollection(HashSet::new));
+    Set<String> takenEmails = existing.stream().map(Runner::getEmail).map(this::key)
+        .collect(toCollection(HashSet::new));
+
+    List<Runner> toCreate = new ArrayList<>();
+    List<RunnerCreationResult> results = new ArrayList<>();
+    for (Runner runner : runners) {
+      if (takenNicknames.contains(key(runner.getNickname()))) {
+        results.add(new RunnerCreationResult(runner.getNickname(), DUPLICATE_NICKNAME));
+      } else if (takenEmails.contains(key(runner.getEmail()))) {
+        results.add(new RunnerCreationResult(runner.getNickname(), DUPLICATE_EMAIL));
+      } else {
+        takenNicknames.add(key(runner.getNickname()));
+        takenEmails.add(key(runner.getEmail()));
+        toCreate.add(runner);
+        results.add(new RunnerCreationResult(runner.getNickname(), CREATED));
+      }
+    }
+
+    toCreate.forEach(runner -> {
+      runner.setRaceCount(0);
+      runnersExistenceFilter.put(runner);
+    });
+    reserveEmails(toCreate);
+    List<String> notCreated = toCreate.stream().map(Runner::getNickname).collect(toList());
+    try {
+      runnerShards.byShard(toCreate, Runner::getNickname).forEach((shard, shardRunners) -> {
+        List<String> nicknames = shardRunners.stream().map(Runner::getNickname).collect(toList());
+        runnerShards.runOnShard(shard, () -> {
+          runnersRepository.insertAll(shardRunners);
+          runnerRegistrationOutbox.addAll(shardRunners);
+          runnerChangesRepository.insertAll(RunnerOperation.CREATE, nicknames);
+        });
+        notCreated.removeAll(nicknames);
+      });
+    } catch (RuntimeException runtimeException) {
+      if (runnerShards.isSharded()) {
+        releaseEmails(notCreated);
+      }
+      throw runtimeException;
     }
+    runnersCache.registered(toCreate);
+    return results;
+  }
+
+  private List<Runner> findExisting(List<Runner> runners) {
+    if (runnerShards.isSharded()) {
+      return findExistingOnShards(runners);
+    }
+    Set<String> nicknames = runners.stream().map(Runner::getNickname)
+        .filter(nickname -> !runnersExistenceFilter.excludesNickname(nickname))
+        .collect(toSet());
+    Set<String> emails = runners.stream().map(Runner::getEmail)
+        .filter(email -> !runnersExistenceFilter.excludesEmail(email))
+        .collect(toSet());
+    if (nicknames.isEmpty()) {
+      return emails.isEmpty() ? List.of() : runnersRepository.findByEmailIn(emails);
+    }
+    return emails.isEmpty() ? runnersRepository.findAllById(nicknames)
+        : runnersRepository.findByNicknameInOrEmailIn(nicknames, emails);
+  }
 
-    newRunnerRegistrationOutput.send(withPayload(runner).build());
-    return runnersRepository.save(runner);
+  private List<Runner> findExistingOnShards(List<Runner> runners) {
+    List<Runner> existing = new ArrayList<>();
+    Set<String> nicknames = runners.stream().map(Runner::getNickname)
+        .filter(nickname -> !runnersExistenceFilter.excludesNickname(nickname))
+        .collect(toSet());
+    runnerShards.byShard(nicknames, nickname -> nickname).forEach((shard, shardNicknames) ->
+        existing.addAll(runnerShards.onShard(shard,
+            () -> runnersRepository.findAllById(shardNicknames))));
+    Set<String> emails = runners.stream().map(Runner::getEmail)
+        .filter(email -> !runnersExistenceFilter.excludesEmail(email))
+        .collect(toSet());
+    existing.addAll(runnerShards.onShard(RunnerShards.DIRECTORY_SHARD,
+        () -> runnerEmailsRepository.findByEmailIn(emails)));
+    return existing;
   }
 
-  private boolean existRunner(Runner runner) {
-    return ofNullable(runner)
-        .map(Runner::getNickname)
-        .flatMap(runnersRepository::findById)
-        .isPresent();
+  private String key(String value) {
+    return value == null ? null : value.toLowerCase(Locale.ROOT);
   }
 
+  @Transactional
   public Runner update(Runner runner) {
-    return ofNullable(runner)
-        .map(Runner::getNickname)
-        .flatMap(runnersRepository::findById)
-        .map(current -> mergeRunner(current, runner))
-        .map(runnersRepository::save)
-        .orElseThrow(() -> new RunnerNotFoundException(
-            "Runner with nickname " + runner.getNickname() + " does not exist"));
+    if (writesBehind(runner)) {
+      Optional<Runner> buffered = bufferLastRace(runner);
+      if (buffered.isPresent()) {
+        return buffered.get();
+      }
+    }
+    return runnerShards.onShard(runnerShards.shardOf(runner.getNickname()), () -> {
+      Optional<Runner> cached = runnersCache.getIfPresent(runner.getNickname())
+          .filter(current -> runner.getVersion() == null
+              || runner.getVersion().equals(current.getVersion()));
+      writeLastRace(runner);
+      return cached
+          .map(current -> mergeRunner(current, runner))
+          .or(() -> runnersRepository.findById(runner.getNickname()))
+          .orElseThrow(() -> runnerNotFound(runner.getNickname()));
+    });
+  }
+
+  @Transactional
+  public void updateLastRace(Runner runner) {
+    if (writesBehind(runner) && bufferLastRace(runner).isPresent()) {
+      return;
+    }
+    runnerShards.runOnShard(runnerShards.shardOf(runner.getNickname()),
+        () -> writeLastRace(runner));
   }
 
+  private void writeLastRace(Runner runner) {
+    String nickname = runner.getNickname();
+    lastRaceWriteBuffer.discard(nickname)
+        .ifPresent(pending -> runnersRepository.updateLastRace(nickname, pending.getLastRace()));
+    Long expectedVersion = runner.getVersion();
+    int updated = expectedVersion == null
+        ? runnersRepository.updateLastRace(nickname, runner.getLastRace())
+        : runnersRepository.updateLastRace(nickname, runner.getLastRace(), expectedVersion);
+    if (updated == 0) {
+      if (expectedVersion != null && runnersRepository.existsById(nickname)) {
+        throw new RunnerVersionMismatchException(
+            "Runner with nickname " + nickname + " is not at version " + expectedVersion);
+      }
+      throw runnerNotFound(nickname);
+    }
+    runnerChangesRepository.insertAll(RunnerOperation.UPDATE, List.of(nickname));
+    runnersCache.invalidate(nickname);
+  }
+
+  /**
+   * Unconditional updates only need the runner to exist, which the cache can tell, so in
+   * write-behind mode they are buffered instead of written, unless the buffer is full.
+   * Conditional updates are written right away, after the update buffered for the same runner,
+   * if any.
+   */
+  private boolean writesBehind(Runner runner) {
+    return runner.getVersion() == null && lastRaceWriteBuffer.isEnabled();
+  }
+
+  private Optional<Runner> bufferLastRace(Runner runner) {
+    Runner current = findByNickname(runner.getNickname())
+        .orElseThrow(() -> runnerNotFound(runner.getNickname()));
+    if (!lastRaceWriteBuffer.offer(runner.toBuilder().nickname(current.getNickname()).build())) {
+      return Optional.empty();
+    }
+    return Optional.of(withBufferedLastRace(current, runner));
+  }
+
+  /**
+   * The version a buffered last race gets depends on the flush it is written by, so runners
+   * with a buffered last race are returned without a version, hence without an ETag.
+   */
+  private Runner withBufferedLastRace(Runner current, Runner buffered) {
+    return current.toBuilder().lastRace(buffered.getLastRace()).version(null).build();
+  }
+
+  private RunnerNotFoundException runnerNotFound(String nickname) {
+    return new RunnerNotFoundException("Runner with nickname " + nickname + " does not exist");
+  }
+
+  /** The runner as updated from {@code current}, whose version the update incremented. */
   private Runner mergeRunner(Runner current, Runner runner) {
     return current.toBuilder()
         .lastRace(runner.getLastRace())
+        .version(current.getVersion() == null ? null : current.getVersion() + 1)
         .build();
   }
 
+  @Transactional(readOnly = true)
+  public RunnersPage list(String after, int limit) {
+    int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    List<List<RunnerSummary>> pages = runnerShards.onEachShard(shard -> runnersRepository
+        .findByNicknameGreaterThanOrderByNicknameAsc(after, PageRequest.of(0, pageSize)));
+    List<RunnerSummary> runners = pages.size() == 1 ? pages.get(0) : pages.stream()
+        .flatMap(List::stream)
+        .sorted(comparing(RunnerSummary::getNickname, String.CASE_INSENSITIVE_ORDER))
+        .limit(pageSize)
+        .collect(toList());
+    String next = runners.size() == pageSize ? runners.get(pageSize - 1).getNickname() : null;
+    return new RunnersPage(runners, next);
+  }
+
+  @Transactional(readOnly = true)
+  public void export(Consumer<Runner> consumer) {
+    for (int shard = 0; shard < runnerShards.count(); shard++) {
+      runnerShards.runOnShard(shard, () -> {
+        try (Stream<Runner> runners = runnersRepository.streamAll()) {
+          runners.forEach(runner -> {
+            consumer.accept(runner);
+            entityManager.detach(runner);
+          });
+        }
+      });
+    }
+  }
+
+  @Transactional
   public void deleteByNickName(String nickname) {
-    runnersRepository.deleteById(nickname);
+    lastRaceWriteBuffer.discard(nickname);
+    runnerShards.runOnShard(runnerShards.shardOf(nickname), () -> {
+      runnersRepository.deleteById(nickname);
+      runnerChangesRepository.insertAll(RunnerOperation.DELETE, List.of(nickname));
+    });
+    if (runnerShards.isSharded()) {
+      releaseEmails(List.of(nickname));
+    }
+    runnersCache.invalidate(nickname);
   }
 
 }
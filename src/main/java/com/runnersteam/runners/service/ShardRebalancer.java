@@ -0,0 +1,153 @@
+package com.runnersteam.runners.service;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.RaceResult;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerKey;
+import com.runnersteam.runners.repository.RaceResultsRepository;
+import com.runnersteam.runners.repository.RunnerEmailsRepository;
+import com.runnersteam.runners.repository.RunnersRepository;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Offline tool run with the {@code rebalance} profile after shards have been appended to
+ * {@code runners.sharding.shard-urls}, while no instance serves traffic. It moves every runner not
+ * on the shard the ring now places it on, with its race results, by chunks: the chunk is copied
+ * to its new shard, skipping runners a previous run already copied, then deleted from the old
+ * one, so an interrupted run can simply be started again. The application exits when it is done.
+ * Emails stay reserved in the directory, which does not move. Before moving anything, it reserves
+ * in the directory the emails of runners that have none, such as those created before sharding
+ * was enabled, so they stay unique across shards.
+ */
+@Component
+@Profile("rebalance")
+@Slf4j
+public class ShardRebalancer implements ApplicationRunner {
+
+  private static final int CHUNK_SIZE = 500;
+
+  @Autowired
+  private RunnerShards runnerShards;
+
+  @Autowired
+  private RunnersRepository runnersRepository;
+
+  @Autowired
+  private RaceResultsRepository raceResultsRepository;
+
+  @Autowired
+  private RunnerEmailsRepository runnerEmailsRepository;
+
+  @Autowired
+  private ConfigurableApplicationContext applicationContext;
+
+  @Override
+  public void run(ApplicationArguments arguments) {
+    long moved = rebalance();
+    log.info("rebalance-" + moved + " runners moved");
+    System.exit(SpringApplication.exit(applicationContext));
+  }
+
+  public long rebalance() {
+    if (!runnerShards.isSharded()) {
+      return 0;
+    }
+    reserveEmails();
+    long moved = 0;
+    for (int source = 0; source < runnerShards.count(); source++) {
+      int shard = source;
+      List<String> misplaced = runnerShards.onShard(shard, () -> findMisplaced(shard));
+      for (int from = 0; from < misplaced.size(); from += CHUNK_SIZE) {
+        moved += move(shard, misplaced.subList(from, Math.min(from + CHUNK_SIZE,
+            misplaced.size())));
+      }
+    }
+    return moved;
+  }
+
+  private void reserveEmails() {
+    long reserved = runnerShards.onShard(RunnerShards.DIRECTORY_SHARD,
+        runnerEmailsRepository::insertFromRunners);
+    for (int source = 0; source < runnerShards.count(); source++) {
+      if (source == RunnerShards.DIRECTORY_SHARD) {
+        continue;
+      }
+      int shard = source;
+      List<Runner> runners = runnerShards.onShard(shard, this::findKeys);
+      for (int from = 0; from < runners.size(); from += CHUNK_SIZE) {
+        List<Runner> chunk = runners.subList(from, Math.min(from + CHUNK_SIZE, runners.size()));
+        reserved += runnerShards.onShard(RunnerShards.DIRECTORY_SHARD,
+            () -> runnerEmailsRepository.insertMissing(chunk));
+      }
+    }
+    log.info("rebalance-" + reserved + " emails reserved");
+  }
+
+  private List<Runner> findKeys() {
+    try (Stream<RunnerKey> keys = runnersRepository.streamKeys()) {
+      return keys.map(key -> Runner.builder().nickname(key.getNickname()).email(key.getEmail())
+          .build())
+          .collect(toList());
+    }
+  }
+
+  private List<String> findMisplaced(int shard) {
+    try (Stream<RunnerKey> keys = runnersRepository.streamKeys()) {
+      return keys.map(RunnerKey::getNickname)
+          .filter(nickname -> runnerShards.shardOf(nickname) != shard)
+          .collect(toList());
+    }
+  }
+
+  private int move(int source, List<String> nicknames) {
+    List<Runner> runners = runnerShards.onShard(source,
+        () -> runnersRepository.findAllById(nicknames));
+    List<RaceResult> results = runnerShards.onShard(source,
+        () -> raceResultsRepository.findByNicknameIn(nicknames));
+    runnerShards.byShard(runners, Runner::getNickname).forEach((target, targetRunners) ->
+        runnerShards.runOnShard(target, () -> copy(targetRunners, results)));
+    runnerShards.runOnShard(source, () -> runnersRepository.deleteInBatch(runners));
+    return runners.size();
+  }
+
+  private void copy(List<Runner> runners, List<RaceResult> results) {
+    Set<String> copied = runnersRepository
+        .findAllById(runners.stream().map(Runner::getNickname).collect(toList())).stream()
+        .map(Runner::getNickname)
+        .map(this::key)
+        .collect(toSet());
+    List<Runner> toCopy = runners.stream()
+        .filter(runner -> !copied.contains(key(runner.getNickname())))
+        .collect(toList());
+    if (toCopy.isEmpty()) {
+      return;
+    }
+    Set<String> toCopyNicknames = toCopy.stream().map(Runner::getNickname).map(this::key)
+        .collect(toSet());
+    List<RaceResult> toCopyResults = results.stream()
+        .filter(result -> toCopyNicknames.contains(key(result.getNickname())))
+        .collect(toList());
+    runnersRepository.insertCopies(toCopy);
+    if (!toCopyResults.isEmpty()) {
+      raceResultsRepository.insertAll(toCopyResults);
+    }
+  }
+
+  private String key(String nickname) {
+    return nickname.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,7 @@
+create table runner_outbox (
+    id bigint auto_increment primary key,
+    nickname varchar(100) not null,
+    payload blob not null,
+    content_type varchar(100) not null,
+    created_at timestamp default current_timestamp not null
+);
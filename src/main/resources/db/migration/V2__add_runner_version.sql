@@ -0,0 +1 @@
+alter table runners add column version bigint default 0 not null;
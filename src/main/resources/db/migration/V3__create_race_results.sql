@@ -0,0 +1,16 @@
+create table race_results (
+    id bigint auto_increment primary key,
+    nickname varchar(100) not null,
+    race varchar(250) not null,
+    race_date date not null,
+    finish_time_seconds int not null,
+    created_at timestamp default current_timestamp not null,
+    constraint race_results_runner foreign key (nickname) references runners (nickname)
+        on delete cascade
+);
+
+create index race_results_nickname_race_date on race_results (nickname, race_date);
+
+alter table runners add column last_race_date date;
+alter table runners add column race_count int default 0 not null;
+alter table runners add column personal_best_seconds int;
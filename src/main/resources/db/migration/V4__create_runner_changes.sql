@@ -0,0 +1,8 @@
+create table runner_changes (
+    seq bigint auto_increment primary key,
+    nickname varchar(100) not null,
+    operation varchar(10) not null,
+    changed_at timestamp(3) not null
+);
+
+create index runner_changes_changed_at on runner_changes (changed_at);
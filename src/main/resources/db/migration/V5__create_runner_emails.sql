@@ -0,0 +1,5 @@
+create table runner_emails (
+    nickname varchar(100) primary key,
+    email varchar(255) not null,
+    constraint runner_emails_email_unique unique (email)
+);
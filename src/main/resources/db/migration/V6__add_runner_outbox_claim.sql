@@ -0,0 +1,2 @@
+alter table runner_outbox add column claimed_until timestamp null;
+create index runner_outbox_nickname_id on runner_outbox (nickname, id);
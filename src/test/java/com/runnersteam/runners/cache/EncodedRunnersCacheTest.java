@@ -0,0 +1,97 @@
+package com.runnersteam.runners.cache;
+
+import static com.runnersteam.runners.util.TestData.buildRunner;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.runnersteam.runners.model.Runner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+public class EncodedRunnersCacheTest {
+
+  private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+  private EncodedRunnersCache encodedRunnersCache = new EncodedRunnersCache();
+
+  @BeforeEach
+  public void setUp() {
+    ReflectionTestUtils.setField(encodedRunnersCache, "enabled", true);
+    ReflectionTestUtils.setField(encodedRunnersCache, "maximumSize", DataSize.ofKilobytes(64));
+    ReflectionTestUtils.setField(encodedRunnersCache, "meterRegistry", new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(encodedRunnersCache, "objectMapper", objectMapper);
+    encodedRunnersCache.init();
+  }
+
+  @Test
+  public void shouldEncodeLikeObjectMapper() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().subscriptionDate(LocalDate.of(2020, 1, 2)).build();
+
+    //When
+    byte[] json = encodedRunnersCache.encode(runner.getNickname(), runner);
+
+    //Then
+    assertThat(json).isEqualTo(objectMapper.writeValueAsBytes(runner));
+  }
+
+  @Test
+  public void shouldReuseEncodingOfSameRunner() {
+    //Given
+    Runner runner = buildRunner();
+    byte[] first = encodedRunnersCache.encode(runner.getNickname(), runner);
+
+    //When
+    byte[] second = encodedRunnersCache.encode(runner.getNickname(), runner);
+
+    //Then
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  public void shouldEncodeAgainWhenRunnerReloaded() throws Exception {
+    //Given
+    Runner runner = buildRunner();
+    encodedRunnersCache.encode(runner.getNickname(), runner);
+    Runner reloaded = runner.toBuilder().lastRace("theNewRace").build();
+
+    //When
+    byte[] json = encodedRunnersCache.encode(runner.getNickname(), reloaded);
+
+    //Then
+    assertThat(json).isEqualTo(objectMapper.writeValueAsBytes(reloaded));
+  }
+
+  @Test
+  public void shouldEncodeAgainAfterInvalidation() {
+    //Given
+    Runner runner = buildRunner();
+    byte[] first = encodedRunnersCache.encode(runner.getNickname(), runner);
+
+    //When
+    encodedRunnersCache.invalidateAll(List.of(runner.getNickname()));
+    byte[] second = encodedRunnersCache.encode(runner.getNickname(), runner);
+
+    //Then
+    assertThat(second).isEqualTo(first).isNotSameAs(first);
+  }
+
+  @Test
+  public void shouldReuseEncodingIgnoringCase() {
+    //Given
+    Runner runner = buildRunner();
+    byte[] first = encodedRunnersCache.encode(runner.getNickname().toLowerCase(), runner);
+
+    //When
+    byte[] second = encodedRunnersCache.encode(runner.getNickname().toUpperCase(), runner);
+
+    //Then
+    assertThat(second).isSameAs(first);
+  }
+}
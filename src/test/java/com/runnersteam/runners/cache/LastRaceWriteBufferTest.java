@@ -0,0 +1,187 @@
+package com.runnersteam.runners.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerOperation;
+import com.runnersteam.runners.repository.RunnerChangesRepository;
+import com.runnersteam.runners.repository.RunnersRepository;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+public class LastRaceWriteBufferTest {
+
+  private static final String THE_NICKNAME = "theNickname";
+
+  @InjectMocks
+  private LastRaceWriteBuffer lastRaceWriteBuffer;
+
+  @Spy
+  private RunnerShards runnerShards = new RunnerShards();
+
+  @Mock
+  private RunnersRepository runnersRepository;
+
+  @Mock
+  private RunnersCache runnersCache;
+
+  @Mock
+  private RunnerChangesRepository runnerChangesRepository;
+
+  @Spy
+  private TransactionTemplate transactionTemplate =
+      new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+  @BeforeEach
+  public void setUp() {
+    ReflectionTestUtils.setField(lastRaceWriteBuffer, "enabled", true);
+    ReflectionTestUtils.setField(lastRaceWriteBuffer, "stripeCount", 4);
+    ReflectionTestUtils.setField(lastRaceWriteBuffer, "maxPending", 3);
+    lastRaceWriteBuffer.init();
+  }
+
+  @Test
+  public void shouldCoalesceUpdatesAndFlushTheLatest() {
+    //Given
+    lastRaceWriteBuffer.offer(update(THE_NICKNAME, "first"));
+    lastRaceWriteBuffer.offer(update(THE_NICKNAME, "second"));
+
+    //When
+    lastRaceWriteBuffer.flush();
+
+    //Then
+    verify(runnersRepository).updateLastRaces(List.of(update(THE_NICKNAME, "second")));
+    verify(runnerChangesRepository).insertAll(RunnerOperation.UPDATE, List.of(THE_NICKNAME));
+    verify(runnersCache).invalidateAll(List.of(THE_NICKNAME));
+    assertThat(lastRaceWriteBuffer.pending(THE_NICKNAME)).isEmpty();
+  }
+
+  @Test
+  public void shouldExposePendingUpdate() {
+    //When
+    lastRaceWriteBuffer.offer(update(THE_NICKNAME, "first"));
+
+    //Then
+    assertThat(lastRaceWriteBuffer.pending(THE_NICKNAME)).contains(update(THE_NICKNAME, "first"));
+    verify(runnersRepository, never()).updateLastRaces(any());
+  }
+
+  @Test
+  public void shouldRefuseNewNicknamesWhenMaxPendingReachedWithoutFlushing() {
+    //Given
+    lastRaceWriteBuffer.offer(update("first", "race"));
+    lastRaceWriteBuffer.offer(update("second", "race"));
+    lastRaceWriteBuffer.offer(update("third", "race"));
+
+    //When
+    boolean fourth = lastRaceWriteBuffer.offer(update("fourth", "race"));
+    boolean coalesced = lastRaceWriteBuffer.offer(update("first", "newRace"));
+
+    //Then
+    assertThat(fourth).isFalse();
+    assertThat(coalesced).isTrue();
+    assertThat(lastRaceWriteBuffer.pending("fourth")).isEmpty();
+    assertThat(lastRaceWriteBuffer.pending("first")).contains(update("first", "newRace"));
+    verify(runnersRepository, never()).updateLastRaces(any());
+  }
+
+  @Test
+  public void shouldStayBoundedWhileFlushesFail() {
+    //Given
+    doThrow(new QueryTimeoutException("timeout")).when(runnersRepository).updateLastRaces(any());
+    lastRaceWriteBuffer.offer(update("first", "race"));
+    lastRaceWriteBuffer.offer(update("second", "race"));
+    lastRaceWriteBuffer.offer(update("third", "race"));
+    lastRaceWriteBuffer.flush();
+
+    //When
+    boolean fourth = lastRaceWriteBuffer.offer(update("fourth", "race"));
+
+    //Then
+    assertThat(fourth).isFalse();
+  }
+
+  @Test
+  public void shouldAcceptNewNicknamesAgainAfterFlush() {
+    //Given
+    lastRaceWriteBuffer.offer(update("first", "race"));
+    lastRaceWriteBuffer.offer(update("second", "race"));
+    lastRaceWriteBuffer.offer(update("third", "race"));
+
+    //When
+    lastRaceWriteBuffer.flush();
+
+    //Then
+    assertThat(lastRaceWriteBuffer.offer(update("fourth", "race"))).isTrue();
+  }
+
+  @Test
+  public void shouldKeepPendingWhenFlushFails() {
+    //Given
+    lastRaceWriteBuffer.offer(update(THE_NICKNAME, "first"));
+    doThrow(new QueryTimeoutException("timeout")).when(runnersRepository).updateLastRaces(any());
+
+    //When
+    lastRaceWriteBuffer.flush();
+
+    //Then
+    assertThat(lastRaceWriteBuffer.pending(THE_NICKNAME)).contains(update(THE_NICKNAME, "first"));
+    verify(runnerChangesRepository, never()).insertAll(any(), any());
+    verify(runnersCache, never()).invalidateAll(any());
+  }
+
+  @Test
+  public void shouldDiscardPendingUpdate() {
+    //Given
+    lastRaceWriteBuffer.offer(update(THE_NICKNAME, "first"));
+
+    //When
+    lastRaceWriteBuffer.discard(THE_NICKNAME);
+    lastRaceWriteBuffer.flush();
+
+    //Then
+    assertThat(lastRaceWriteBuffer.pending(THE_NICKNAME)).isEmpty();
+    verify(runnersRepository, never()).updateLastRaces(any());
+  }
+
+  @Test
+  public void shouldCoalesceAndDiscardWhateverTheCaseOfTheNickname() {
+    //Given
+    lastRaceWriteBuffer.offer(update(THE_NICKNAME, "first"));
+    lastRaceWriteBuffer.offer(update(THE_NICKNAME.toUpperCase(), "second"));
+
+    //When
+    Runner pending = lastRaceWriteBuffer.pending(THE_NICKNAME.toLowerCase()).orElseThrow();
+    lastRaceWriteBuffer.discard(THE_NICKNAME.toUpperCase());
+    lastRaceWriteBuffer.flush();
+
+    //Then
+    assertThat(pending).isEqualTo(update(THE_NICKNAME.toUpperCase(), "second"));
+    assertThat(lastRaceWriteBuffer.pending(THE_NICKNAME)).isEmpty();
+    assertThat(lastRaceWriteBuffer.offer(update("first", "race"))).isTrue();
+    assertThat(lastRaceWriteBuffer.offer(update("second", "race"))).isTrue();
+    assertThat(lastRaceWriteBuffer.offer(update("third", "race"))).isTrue();
+    verify(runnersRepository, never()).updateLastRaces(any());
+  }
+
+  private Runner update(String nickname, String lastRace) {
+    return Runner.builder().nickname(nickname).lastRace(lastRace).build();
+  }
+}
@@ -0,0 +1,246 @@
+package com.runnersteam.runners.cache;
+
+import static com.runnersteam.runners.util.TestData.buildRunner;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.runnersteam.runners.messaging.RunnerInvalidationEvent;
+import com.runnersteam.runners.model.Runner;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class RunnersCacheTest {
+
+  private static final String THE_NICKNAME = "theNickname";
+
+  @InjectMocks
+  private RunnersCache runnersCache;
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Mock
+  private MessageChannel runnerInvalidationOutput;
+
+  @Mock
+  private EncodedRunnersCache encodedRunnersCache;
+
+  @SuppressWarnings("unchecked")
+  private Function<String, Optional<Runner>> loader = mock(Function.class);
+
+  @BeforeEach
+  public void setUp() {
+    ReflectionTestUtils.setField(runnersCache, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(runnersCache, "maximumSize", 100L);
+    ReflectionTestUtils.setField(runnersCache, "expireAfterWrite", Duration.ofMinutes(5));
+    ReflectionTestUtils.setField(runnersCache, "reinvalidateAfter", Duration.ZERO);
+    runnersCache.init();
+  }
+
+  @Test
+  public void shouldLoadOnlyOnce() {
+    //Given
+    Runner runner = buildRunner();
+    when(loader.apply(THE_NICKNAME)).thenReturn(of(runner));
+
+    //When
+    Optional<Runner> first = runnersCache.get(THE_NICKNAME, loader);
+    Optional<Runner> second = runnersCache.get(THE_NICKNAME, loader);
+
+    //Then
+    assertThat(first).contains(runner);
+    assertThat(second).contains(runner);
+    verify(loader).apply(THE_NICKNAME);
+    assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void shouldCacheMisses() {
+    //Given
+    when(loader.apply(THE_NICKNAME)).thenReturn(empty());
+
+    //When
+    runnersCache.get(THE_NICKNAME, loader);
+    Optional<Runner> found = runnersCache.get(THE_NICKNAME, loader);
+
+    //Then
+    assertThat(found).isEmpty();
+    verify(loader).apply(THE_NICKNAME);
+  }
+
+  @Test
+  public void shouldLoadAllOnlyNicknamesNotCached() {
+    //Given
+    Runner runner = buildRunner();
+    when(loader.apply(THE_NICKNAME)).thenReturn(of(runner));
+    runnersCache.get(THE_NICKNAME, loader);
+    @SuppressWarnings("unchecked")
+    Function<Set<String>, Map<String, Optional<Runner>>> bulkLoader = mock(Function.class);
+    when(bulkLoader.apply(Set.of("unknown"))).thenReturn(Map.of("unknown", empty()));
+
+    //When
+    Map<String, Optional<Runner>> found =
+        runnersCache.getAll(List.of(THE_NICKNAME, "unknown"), bulkLoader);
+    runnersCache.getAll(List.of("unknown"), bulkLoader);
+
+    //Then
+    assertThat(found).containsEntry(THE_NICKNAME, of(runner)).containsEntry("unknown", empty());
+    verify(bulkLoader).apply(Set.of("unknown"));
+  }
+
+  @Test
+  public void shouldCacheIgnoringCase() {
+    //Given
+    Runner runner = buildRunner();
+    when(loader.apply(THE_NICKNAME)).thenReturn(of(runner));
+    runnersCache.get(THE_NICKNAME, loader);
+    @SuppressWarnings("unchecked")
+    Function<Set<String>, Map<String, Optional<Runner>>> bulkLoader = mock(Function.class);
+
+    //When
+    Optional<Runner> found = runnersCache.get("THENICKNAME", loader);
+    Map<String, Optional<Runner>> foundAll =
+        runnersCache.getAll(List.of("TheNickname"), bulkLoader);
+
+    //Then
+    assertThat(found).contains(runner);
+    assertThat(foundAll).containsEntry("TheNickname", of(runner));
+    assertThat(runnersCache.getIfPresent("thenickname")).contains(runner);
+    verify(loader).apply(THE_NICKNAME);
+    verify(bulkLoader, never()).apply(any());
+  }
+
+  @Test
+  public void shouldInvalidateIgnoringCase() {
+    //Given
+    when(loader.apply(THE_NICKNAME)).thenReturn(of(buildRunner()));
+    runnersCache.get(THE_NICKNAME, loader);
+
+    //When
+    runnersCache.invalidateLocally(List.of("THENICKNAME"));
+    runnersCache.get(THE_NICKNAME, loader);
+
+    //Then
+    verify(loader, times(2)).apply(THE_NICKNAME);
+  }
+
+  @Test
+  public void shouldInvalidateAndBroadcast() {
+    //Given
+    when(loader.apply(THE_NICKNAME)).thenReturn(of(buildRunner()));
+    runnersCache.get(THE_NICKNAME, loader);
+
+    //When
+    runnersCache.invalidate(THE_NICKNAME);
+    runnersCache.get(THE_NICKNAME, loader);
+
+    //Then
+    verify(loader, times(2)).apply(THE_NICKNAME);
+    verify(runnerInvalidationOutput).send(argThat((Message<?> message) ->
+        ((RunnerInvalidationEvent) message.getPayload()).getNicknames()
+            .equals(List.of(THE_NICKNAME))));
+  }
+
+  @Test
+  public void shouldInvalidateLocallyWithoutBroadcast() {
+    //Given
+    when(loader.apply(THE_NICKNAME)).thenReturn(of(buildRunner()));
+    runnersCache.get(THE_NICKNAME, loader);
+
+    //When
+    runnersCache.invalidateLocally(List.of(THE_NICKNAME));
+    runnersCache.get(THE_NICKNAME, loader);
+
+    //Then
+    verify(loader, times(2)).apply(THE_NICKNAME);
+    verify(encodedRunnersCache).invalidateAll(List.of("thenickname"));
+    verify(runnerInvalidationOutput, never()).send(any());
+  }
+
+  @Test
+  public void shouldInvalidateAndBroadcastRegisteredKeys() {
+    //Given
+    Runner runner = buildRunner();
+    when(loader.apply(runner.getNickname())).thenReturn(empty());
+    runnersCache.get(runner.getNickname(), loader);
+
+    //When
+    runnersCache.registered(List.of(runner));
+    runnersCache.get(runner.getNickname(), loader);
+
+    //Then
+    verify(loader, times(2)).apply(runner.getNickname());
+    verify(runnerInvalidationOutput).send(argThat((Message<?> message) -> {
+      RunnerInvalidationEvent event = (RunnerInvalidationEvent) message.getPayload();
+      return event.getNicknames().equals(List.of(runner.getNickname()))
+          && event.getEmails().equals(List.of(runner.getEmail()));
+    }));
+  }
+
+  @Test
+  public void shouldInvalidateLocallyAgainAfterReplicasCaughtUp() throws InterruptedException {
+    //Given
+    ReflectionTestUtils.setField(runnersCache, "reinvalidateAfter", Duration.ofMillis(50));
+    when(loader.apply(THE_NICKNAME)).thenReturn(of(buildRunner()));
+    runnersCache.invalidateLocally(List.of(THE_NICKNAME));
+    runnersCache.get(THE_NICKNAME, loader);
+
+    //When
+    Thread.sleep(200);
+    runnersCache.get(THE_NICKNAME, loader);
+
+    //Then
+    verify(loader, times(2)).apply(THE_NICKNAME);
+    verify(encodedRunnersCache, times(2)).invalidateAll(List.of(THE_NICKNAME.toLowerCase()));
+  }
+
+  @Test
+  public void shouldReinvalidateByDefaultWhenReadsGoToReplicas() {
+    //Given
+    ReflectionTestUtils.setField(runnersCache, "reinvalidateAfter", null);
+    ReflectionTestUtils.setField(runnersCache, "replicaUrls", "jdbc:h2:mem:replica");
+
+    //When
+    runnersCache.init();
+
+    //Then
+    assertThat(ReflectionTestUtils.getField(runnersCache, "reinvalidateAfter"))
+        .isEqualTo(Duration.ofSeconds(2));
+  }
+
+  @Test
+  public void shouldNotStartWithoutReinvalidationWhenReadsGoToReplicas() {
+    //Given
+    ReflectionTestUtils.setField(runnersCache, "replicaUrls", "jdbc:h2:mem:replica");
+
+    //When && Then
+    assertThatThrownBy(() -> runnersCache.init())
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("runners.cache.reinvalidate-after");
+  }
+}
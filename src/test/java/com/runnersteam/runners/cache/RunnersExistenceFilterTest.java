@@ -0,0 +1,128 @@
+package com.runnersteam.runners.cache;
+
+import static com.runnersteam.runners.util.TestData.buildRunner;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerKey;
+import com.runnersteam.runners.repository.RunnersRepository;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+public class RunnersExistenceFilterTest {
+
+  @InjectMocks
+  private RunnersExistenceFilter runnersExistenceFilter;
+
+  @Spy
+  private RunnerShards runnerShards = new RunnerShards();
+
+  @Mock
+  private RunnersRepository runnersRepository;
+
+  @BeforeEach
+  public void setUp() {
+    ReflectionTestUtils.setField(runnersExistenceFilter, "falsePositiveProbability", 0.001);
+  }
+
+  @Test
+  public void shouldExcludeNothingBeforeLoad() {
+    //When && Then
+    assertThat(runnersExistenceFilter.excludesNickname("unknown")).isFalse();
+    assertThat(runnersExistenceFilter.excludesEmail("unknown@mail.com")).isFalse();
+  }
+
+  @Test
+  public void shouldExcludeOnlyUnknownKeysIgnoringCase() {
+    //Given
+    Runner runner = buildRunner();
+    when(runnersRepository.count()).thenReturn(1L);
+    when(runnersRepository.streamKeys()).thenReturn(Stream.of(key(runner)));
+
+    //When
+    runnersExistenceFilter.rebuild();
+
+    //Then
+    assertThat(runnersExistenceFilter.excludesNickname(runner.getNickname().toUpperCase()))
+        .isFalse();
+    assertThat(runnersExistenceFilter.excludesEmail(runner.getEmail().toUpperCase())).isFalse();
+    assertThat(runnersExistenceFilter.excludesNickname("unknown")).isTrue();
+    assertThat(runnersExistenceFilter.excludesEmail("unknown@mail.com")).isTrue();
+  }
+
+  @Test
+  public void shouldNotExcludeKeysAddedAfterLoad() {
+    //Given
+    Runner runner = buildRunner();
+    when(runnersRepository.streamKeys()).thenReturn(Stream.empty());
+    runnersExistenceFilter.rebuild();
+
+    //When
+    runnersExistenceFilter.put(runner);
+    runnersExistenceFilter.putAll(List.of("other"), List.of("other@mail.com"));
+
+    //Then
+    assertThat(runnersExistenceFilter.excludesNickname(runner.getNickname())).isFalse();
+    assertThat(runnersExistenceFilter.excludesEmail(runner.getEmail())).isFalse();
+    assertThat(runnersExistenceFilter.excludesNickname("other")).isFalse();
+    assertThat(runnersExistenceFilter.excludesEmail("other@mail.com")).isFalse();
+  }
+
+  @Test
+  public void shouldRecoverKeysMissedSinceLoadOnRebuild() {
+    //Given
+    Runner runner = buildRunner();
+    when(runnersRepository.streamKeys())
+        .thenReturn(Stream.empty())
+        .thenReturn(Stream.of(key(runner)));
+    runnersExistenceFilter.rebuild();
+
+    //When
+    runnersExistenceFilter.rebuild();
+
+    //Then
+    assertThat(runnersExistenceFilter.excludesNickname(runner.getNickname())).isFalse();
+    assertThat(runnersExistenceFilter.excludesEmail(runner.getEmail())).isFalse();
+  }
+
+  @Test
+  public void shouldKeepKeysAddedBeforeRebuildUntilNextRebuild() {
+    //Given
+    when(runnersRepository.streamKeys()).thenAnswer(invocation -> Stream.empty());
+    runnersExistenceFilter.rebuild();
+    runnersExistenceFilter.putAll(List.of("uncommitted"), List.of());
+
+    //When
+    runnersExistenceFilter.rebuild();
+
+    //Then
+    assertThat(runnersExistenceFilter.excludesNickname("uncommitted")).isFalse();
+    runnersExistenceFilter.rebuild();
+    assertThat(runnersExistenceFilter.excludesNickname("uncommitted")).isTrue();
+  }
+
+  private RunnerKey key(Runner runner) {
+    return new RunnerKey() {
+      @Override
+      public String getNickname() {
+        return runner.getNickname();
+      }
+
+      @Override
+      public String getEmail() {
+        return runner.getEmail();
+      }
+    };
+  }
+}
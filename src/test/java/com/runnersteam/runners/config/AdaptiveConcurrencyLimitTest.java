@@ -0,0 +1,99 @@
+package com.runnersteam.runners.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+  @Test
+  public void shouldRejectOnceLimitReached() {
+    //Given
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 1.0);
+
+    //When
+    boolean first = limit.tryAcquire(true);
+    boolean second = limit.tryAcquire(true);
+    boolean third = limit.tryAcquire(true);
+
+    //Then
+    assertThat(first).isTrue();
+    assertThat(second).isTrue();
+    assertThat(third).isFalse();
+    assertThat(limit.getInflight()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldKeepRoomForReadsOverWrites() {
+    //Given
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 10, 0.5);
+    for (int i = 0; i < 5; i++) {
+      assertThat(limit.tryAcquire(false)).isTrue();
+    }
+
+    //When
+    boolean write = limit.tryAcquire(false);
+    boolean read = limit.tryAcquire(true);
+
+    //Then
+    assertThat(write).isFalse();
+    assertThat(read).isTrue();
+  }
+
+  @Test
+  public void shouldGrowWhileLatencyStaysFlatUnderLoad() {
+    //Given
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 1.0);
+
+    //When
+    saturate(limit, FAST, 50);
+
+    //Then
+    assertThat(limit.getLimit()).isGreaterThan(10);
+  }
+
+  @Test
+  public void shouldShrinkWhenLatencyRises() {
+    //Given
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(50, 4, 100, 1.0);
+    saturate(limit, FAST, 200);
+    int before = limit.getLimit();
+
+    //When
+    saturate(limit, SLOW, 10);
+
+    //Then
+    assertThat(limit.getLimit()).isLessThan(before / 2).isGreaterThanOrEqualTo(4);
+  }
+
+  @Test
+  public void shouldNotGrowWhileMostlyIdle() {
+    //Given
+    AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 1.0);
+
+    //When
+    for (int i = 0; i < 50; i++) {
+      limit.tryAcquire(true);
+      limit.release(FAST);
+    }
+
+    //Then
+    assertThat(limit.getLimit()).isEqualTo(10);
+  }
+
+  private static void saturate(AdaptiveConcurrencyLimit limit, long rttNanos, int rounds) {
+    for (int round = 0; round < rounds; round++) {
+      int acquired = 0;
+      while (limit.tryAcquire(true)) {
+        acquired++;
+      }
+      for (int i = 0; i < acquired; i++) {
+        limit.release(rttNanos);
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.runnersteam.runners.config;
+
+import static com.runnersteam.runners.config.LoadSheddingFilter.LIMIT_GAUGE;
+import static com.runnersteam.runners.config.LoadSheddingFilter.REJECTED_COUNTER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class LoadSheddingFilterTest {
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 0.5);
+
+  private LoadSheddingFilter loadSheddingFilter;
+
+  @BeforeEach
+  public void setUp() {
+    loadSheddingFilter = new LoadSheddingFilter(limit, Duration.ofSeconds(2), meterRegistry);
+  }
+
+  @Test
+  public void shouldPassAndReleaseWithinLimit() throws Exception {
+    //Given
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+
+    //When
+    loadSheddingFilter.doFilter(request("GET", "/theNickname"), response, chain);
+
+    //Then
+    assertThat(chain.getRequest()).isNotNull();
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(limit.getInflight()).isZero();
+    assertThat(meterRegistry.get(LIMIT_GAUGE).gauge().value()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldRejectWritesBeyondTheirShare() throws Exception {
+    //Given
+    limit.tryAcquire(false);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+
+    //When
+    loadSheddingFilter.doFilter(request("PUT", "/theNickname"), response, chain);
+
+    //Then
+    assertThat(chain.getRequest()).isNull();
+    assertThat(response.getStatus()).isEqualTo(503);
+    assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+    assertThat(response.getContentAsString()).contains("errorMessage");
+    assertThat(meterRegistry.get(REJECTED_COUNTER)
+        .tag("method", "PUT").tag("uri", "/{nickname}").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldLetReadsUseWholeLimit() throws Exception {
+    //Given
+    limit.tryAcquire(false);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    //When
+    loadSheddingFilter.doFilter(request("POST", "/lookup"), response, new MockFilterChain());
+
+    //Then
+    assertThat(response.getStatus()).isEqualTo(200);
+  }
+
+  @Test
+  public void shouldNotLimitStreamingEndpoints() throws Exception {
+    //Given
+    limit.tryAcquire(true);
+    limit.tryAcquire(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    //When
+    loadSheddingFilter.doFilter(request("GET", "/changes"), response, new MockFilterChain());
+
+    //Then
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(limit.getInflight()).isEqualTo(2);
+  }
+
+  private static MockHttpServletRequest request(String method, String path) {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+    request.setServletPath(path);
+    return request;
+  }
+}
@@ -0,0 +1,122 @@
+package com.runnersteam.runners.config;
+
+import static com.runnersteam.runners.config.RateLimitFilter.LIMIT_HEADER;
+import static com.runnersteam.runners.config.RateLimitFilter.REJECTED_COUNTER;
+import static com.runnersteam.runners.config.RateLimitFilter.REMAINING_HEADER;
+import static com.runnersteam.runners.config.RateLimitFilter.RESET_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class RateLimitFilterTest {
+
+  private static final String API_KEY_HEADER = "X-API-Key";
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private RateLimitFilter rateLimitFilter;
+
+  @BeforeEach
+  public void setUp() {
+    rateLimitFilter = new RateLimitFilter(new TokenBuckets(0.5, 2, 1000),
+        Map.of("/batch", new TokenBuckets(0.5, 1, 1000)), API_KEY_HEADER, Set.of("theKey"),
+        meterRegistry);
+  }
+
+  @Test
+  public void shouldRejectClientOverLimitWithHeaders() throws Exception {
+    //Given
+    perform(request("GET", "/theNickname"));
+    perform(request("GET", "/theNickname/results"));
+
+    //When
+    MockHttpServletResponse response = perform(request("GET", "/theNickname"));
+
+    //Then
+    assertThat(response.getStatus()).isEqualTo(429);
+    assertThat(response.getHeader(LIMIT_HEADER)).isEqualTo("2");
+    assertThat(response.getHeader(REMAINING_HEADER)).isEqualTo("0");
+    assertThat(response.getHeader(RESET_HEADER)).isEqualTo("2");
+    assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+    assertThat(response.getContentAsString()).contains("errorMessage");
+    assertThat(meterRegistry.get(REJECTED_COUNTER)
+        .tag("method", "GET").tag("uri", "/{nickname}").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldLimitRouteWithItsOwnBuckets() throws Exception {
+    //Given
+    perform(request("POST", "/batch"));
+
+    //When
+    MockHttpServletResponse batch = perform(request("POST", "/batch"));
+    MockHttpServletResponse get = perform(request("GET", "/theNickname"));
+
+    //Then
+    assertThat(batch.getStatus()).isEqualTo(429);
+    assertThat(get.getStatus()).isEqualTo(200);
+  }
+
+  @Test
+  public void shouldLimitByApiKeyBeforeAddress() throws Exception {
+    //Given
+    MockHttpServletRequest withKey = request("POST", "/batch");
+    withKey.addHeader(API_KEY_HEADER, "theKey");
+    perform(withKey);
+
+    //When
+    MockHttpServletResponse sameAddress = perform(request("POST", "/batch"));
+
+    //Then
+    assertThat(sameAddress.getStatus()).isEqualTo(200);
+  }
+
+  @Test
+  public void shouldLimitUnknownApiKeysByAddress() throws Exception {
+    //Given
+    MockHttpServletRequest withKey = request("POST", "/batch");
+    withKey.addHeader(API_KEY_HEADER, "madeUpKey");
+    perform(withKey);
+    MockHttpServletRequest withOtherKey = request("POST", "/batch");
+    withOtherKey.addHeader(API_KEY_HEADER, "otherMadeUpKey");
+
+    //When
+    MockHttpServletResponse response = perform(withOtherKey);
+
+    //Then
+    assertThat(response.getStatus()).isEqualTo(429);
+  }
+
+  @Test
+  public void shouldNotLimitActuator() throws Exception {
+    //Given
+    perform(request("GET", "/theNickname"));
+    perform(request("GET", "/theNickname"));
+
+    //When
+    MockHttpServletResponse response = perform(request("GET", "/actuator/health"));
+
+    //Then
+    assertThat(response.getStatus()).isEqualTo(200);
+  }
+
+  private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    rateLimitFilter.doFilter(request, response, new MockFilterChain());
+    return response;
+  }
+
+  private static MockHttpServletRequest request(String method, String path) {
+    MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+    request.setServletPath(path);
+    return request;
+  }
+}
@@ -0,0 +1,41 @@
+package com.runnersteam.runners.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+public class RateLimitedLogTest {
+
+  @Test
+  public void shouldSuppressWithinIntervalAndReportSuppressed() {
+    //Given
+    RateLimitedLog rateLimitedLog = new RateLimitedLog(Duration.ofHours(1));
+
+    //When
+    long first = rateLimitedLog.tryAcquire();
+    long second = rateLimitedLog.tryAcquire();
+    long third = rateLimitedLog.tryAcquire();
+
+    //Then
+    assertThat(first).isEqualTo(0);
+    assertThat(second).isEqualTo(-1);
+    assertThat(third).isEqualTo(-1);
+  }
+
+  @Test
+  public void shouldPermitAgainAfterIntervalReportingSuppressed() throws InterruptedException {
+    //Given
+    RateLimitedLog rateLimitedLog = new RateLimitedLog(Duration.ofMillis(50));
+    rateLimitedLog.tryAcquire();
+    rateLimitedLog.tryAcquire();
+    rateLimitedLog.tryAcquire();
+
+    //When
+    Thread.sleep(100);
+    long suppressed = rateLimitedLog.tryAcquire();
+
+    //Then
+    assertThat(suppressed).isEqualTo(2);
+  }
+}
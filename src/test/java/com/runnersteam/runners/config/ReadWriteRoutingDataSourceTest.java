@@ -0,0 +1,74 @@
+package com.runnersteam.runners.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ReadWriteRoutingDataSourceTest {
+
+  private Connection primary = mock(Connection.class);
+  private Connection firstReplica = mock(Connection.class);
+  private Connection secondReplica = mock(Connection.class);
+
+  private ReadWriteRoutingDataSource readWriteRoutingDataSource;
+
+  @BeforeEach
+  public void setUp() throws SQLException {
+    readWriteRoutingDataSource = new ReadWriteRoutingDataSource(dataSource(primary),
+        List.of(dataSource(firstReplica), dataSource(secondReplica)));
+    readWriteRoutingDataSource.afterPropertiesSet();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    ReadWriteRoutingDataSource.unpin();
+  }
+
+  @Test
+  public void shouldRouteReadOnlyTransactionsRoundRobinToReplicas() throws SQLException {
+    //Given
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+    //When
+    List<Connection> connections = List.of(connection(), connection(), connection());
+
+    //Then
+    assertThat(connections).containsExactly(firstReplica, secondReplica, firstReplica);
+  }
+
+  @Test
+  public void shouldRouteWritesToPrimary() throws SQLException {
+    //When && Then
+    assertThat(connection()).isSameAs(primary);
+  }
+
+  @Test
+  public void shouldRoutePinnedReadsToPrimary() throws SQLException {
+    //Given
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    ReadWriteRoutingDataSource.pinToPrimary();
+
+    //When && Then
+    assertThat(connection()).isSameAs(primary);
+  }
+
+  private Connection connection() throws SQLException {
+    return readWriteRoutingDataSource.getConnection();
+  }
+
+  private DataSource dataSource(Connection connection) throws SQLException {
+    DataSource dataSource = mock(DataSource.class);
+    when(dataSource.getConnection()).thenReturn(connection);
+    return dataSource;
+  }
+}
@@ -0,0 +1,111 @@
+package com.runnersteam.runners.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class RunnerShardsTest {
+
+  @InjectMocks
+  private RunnerShards runnerShards;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @AfterEach
+  public void tearDown() {
+    runnerShards.shutdown();
+  }
+
+  @Test
+  public void shouldRunInCallerTransactionWithoutSharding() {
+    //Given
+    runnerShards.init();
+
+    //When
+    Integer shard = runnerShards.onShard(0, ShardRoutingDataSource::currentShard);
+
+    //Then
+    assertThat(shard).isNull();
+    assertThat(runnerShards.byShard(List.<String>of(), nickname -> nickname)).containsOnlyKeys(0);
+    verify(transactionManager, never()).getTransaction(any());
+  }
+
+  @Test
+  public void shouldSelectShardInNewTransaction() {
+    //Given
+    givenShards(2);
+
+    //When
+    Integer shard = runnerShards.onShard(1, ShardRoutingDataSource::currentShard);
+
+    //Then
+    assertThat(shard).isEqualTo(1);
+    assertThat(ShardRoutingDataSource.currentShard()).isNull();
+    verify(transactionManager).getTransaction(any());
+  }
+
+  @Test
+  public void shouldJoinTransactionOfCurrentShard() {
+    //Given
+    givenShards(2);
+
+    //When
+    Integer shard = runnerShards.onShard(1,
+        () -> runnerShards.onShard(1, ShardRoutingDataSource::currentShard));
+
+    //Then
+    assertThat(shard).isEqualTo(1);
+    verify(transactionManager, times(1)).getTransaction(any());
+  }
+
+  @Test
+  public void shouldScatterToEveryShardInOrder() {
+    //Given
+    givenShards(3);
+
+    //When
+    List<Integer> shards = runnerShards.onEachShard(shard -> ShardRoutingDataSource.currentShard());
+
+    //Then
+    assertThat(shards).containsExactly(0, 1, 2);
+  }
+
+  @Test
+  public void shouldGroupByShardKeepingOrder() {
+    //Given
+    givenShards(3);
+    List<String> nicknames = List.of("a", "b", "c", "d", "e", "f", "g", "h");
+
+    //When
+    Map<Integer, List<String>> byShard = runnerShards.byShard(nicknames, nickname -> nickname);
+
+    //Then
+    byShard.forEach((shard, shardNicknames) -> {
+      assertThat(shardNicknames).allMatch(nickname -> runnerShards.shardOf(nickname) == shard);
+      assertThat(shardNicknames).isSortedAccordingTo(String::compareTo);
+    });
+    assertThat(byShard.values()).flatExtracting(shardNicknames -> shardNicknames)
+        .containsExactlyInAnyOrderElementsOf(nicknames);
+  }
+
+  private void givenShards(int shards) {
+    ReflectionTestUtils.setField(runnerShards, "shardRing", new ShardRing(shards, 160));
+    ReflectionTestUtils.setField(runnerShards, "scatterThreads", shards);
+    runnerShards.init();
+  }
+}
@@ -0,0 +1,52 @@
+package com.runnersteam.runners.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+public class ShardRingTest {
+
+  private static final int RUNNERS = 10000;
+
+  @Test
+  public void shouldPlaceCaseInsensitively() {
+    //Given
+    ShardRing shardRing = new ShardRing(4, 160);
+
+    //When && Then
+    assertThat(shardRing.shardFor("TheNickname")).isEqualTo(shardRing.shardFor("thenickname"));
+  }
+
+  @Test
+  public void shouldSpreadRunnersEvenly() {
+    //Given
+    ShardRing shardRing = new ShardRing(4, 160);
+    int[] placed = new int[4];
+
+    //When
+    IntStream.range(0, RUNNERS).forEach(runner -> placed[shardRing.shardFor("runner" + runner)]++);
+
+    //Then
+    for (int count : placed) {
+      assertThat(count).isBetween(RUNNERS / 4 * 8 / 10, RUNNERS / 4 * 12 / 10);
+    }
+  }
+
+  @Test
+  public void shouldOnlyMoveRunnersToAddedShard() {
+    //Given
+    ShardRing before = new ShardRing(3, 160);
+    ShardRing after = new ShardRing(4, 160);
+
+    //When
+    long moved = IntStream.range(0, RUNNERS)
+        .mapToObj(runner -> "runner" + runner)
+        .filter(nickname -> before.shardFor(nickname) != after.shardFor(nickname))
+        .peek(nickname -> assertThat(after.shardFor(nickname)).isEqualTo(3))
+        .count();
+
+    //Then
+    assertThat(moved).isBetween(RUNNERS / 4 * 8 / 10L, RUNNERS / 4 * 12 / 10L);
+  }
+}
@@ -0,0 +1,118 @@
+package com.runnersteam.runners.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketsTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void shouldAllowBurstThenWaitForNextToken() {
+    //Given
+    TokenBuckets tokenBuckets = new TokenBuckets(10, 3, 1000);
+    long now = System.nanoTime();
+
+    //When
+    long first = tokenBuckets.tryAcquire("client", now);
+    long second = tokenBuckets.tryAcquire("client", now);
+    long third = tokenBuckets.tryAcquire("client", now);
+    long fourth = tokenBuckets.tryAcquire("client", now);
+
+    //Then
+    assertThat(first).isZero();
+    assertThat(second).isZero();
+    assertThat(third).isZero();
+    assertThat(fourth).isEqualTo(SECOND / 10);
+  }
+
+  @Test
+  public void shouldRefillAtRate() {
+    //Given
+    TokenBuckets tokenBuckets = new TokenBuckets(10, 1, 1000);
+    long now = System.nanoTime();
+    tokenBuckets.tryAcquire("client", now);
+
+    //When
+    long early = tokenBuckets.tryAcquire("client", now + SECOND / 20);
+    long onTime = tokenBuckets.tryAcquire("client", now + SECOND / 10);
+
+    //Then
+    assertThat(early).isEqualTo(SECOND / 20);
+    assertThat(onTime).isZero();
+  }
+
+  @Test
+  public void shouldKeepClientsApart() {
+    //Given
+    TokenBuckets tokenBuckets = new TokenBuckets(1, 1, 1000);
+    long now = System.nanoTime();
+    tokenBuckets.tryAcquire("client", now);
+
+    //When
+    long other = tokenBuckets.tryAcquire("other", now);
+
+    //Then
+    assertThat(other).isZero();
+    assertThat(tokenBuckets.tryAcquire("client", now)).isPositive();
+  }
+
+  @Test
+  public void shouldDropFullBucketsOfIdleClients() {
+    //Given
+    TokenBuckets tokenBuckets = new TokenBuckets(10, 1, 64_000);
+    long now = System.nanoTime();
+    for (int i = 0; i < 1000; i++) {
+      tokenBuckets.tryAcquire("client" + i, now);
+    }
+
+    for (int i = 0; i < 1000; i++) {
+      tokenBuckets.tryAcquire("other" + i, now + 2 * SECOND);
+    }
+
+    //When
+    tokenBuckets.sweep(now + 2 * SECOND);
+
+    //Then
+    assertThat(tokenBuckets.size()).isEqualTo(1000);
+  }
+
+  @Test
+  public void shouldEvictIdleBucketsInsteadOfSharingThemBeyondMaxClients() {
+    //Given
+    TokenBuckets tokenBuckets = new TokenBuckets(1, 1, 64);
+    long now = System.nanoTime();
+    int rejected = 0;
+
+    //When
+    for (int i = 0; i < 1000; i++) {
+      if (tokenBuckets.tryAcquire("client" + i, now) > 0) {
+        rejected++;
+      }
+    }
+
+    //Then
+    assertThat(tokenBuckets.size()).isLessThanOrEqualTo(64);
+    assertThat(rejected).isZero();
+  }
+
+  @Test
+  public void shouldKeepThrottlingClientWhileOtherClientsChurn() {
+    //Given
+    TokenBuckets tokenBuckets = new TokenBuckets(1, 10, 64 * 16);
+    long now = System.nanoTime();
+    for (int i = 0; i < 10; i++) {
+      tokenBuckets.tryAcquire("throttled", now);
+    }
+
+    //When
+    for (int i = 0; i < 64 * 16 * 4; i++) {
+      tokenBuckets.tryAcquire("client" + i, now);
+    }
+
+    //Then
+    assertThat(tokenBuckets.tryAcquire("throttled", now)).isPositive();
+  }
+}
@@ -0,0 +1,190 @@
+package com.runnersteam.runners.controller;
+
+import static com.runnersteam.runners.util.TestData.buildRunner;
+import static com.runnersteam.runners.util.TestData.toJson;
+import static java.time.LocalDate.now;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import com.runnersteam.runners.config.RunnersExceptionHandler;
+import com.runnersteam.runners.controller.ReactiveRunnersControllerTest.ReactiveRunnersControllerTestConfig;
+import com.runnersteam.runners.exception.ExistingRunnerException;
+import com.runnersteam.runners.exception.RunnerVersionMismatchException;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.service.ReactiveRunnersService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+@WebFluxTest(controllers = ReactiveRunnersController.class)
+@ContextConfiguration(classes = {ReactiveRunnersControllerTestConfig.class,
+    RunnersExceptionHandler.class, SimpleMeterRegistry.class})
+@ActiveProfiles("reactive")
+@ExtendWith(SpringExtension.class)
+public class ReactiveRunnersControllerTest {
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @MockBean
+  private ReactiveRunnersService reactiveRunnersService;
+
+  @Test
+  public void shouldFindByNickname() {
+    //Given
+    Runner runner = buildRunner().toBuilder()
+        .subscriptionDate(now()).lastRace("theLastRace").version(3L).build();
+    when(reactiveRunnersService.findByNickname(runner.getNickname())).thenReturn(Mono.just(runner));
+
+    //When && Then
+    webTestClient.get().uri("/" + runner.getNickname())
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("ETag", "\"3\"")
+        .expectBody()
+        .jsonPath("$.nickname").isEqualTo(runner.getNickname())
+        .jsonPath("$.lastRace").isEqualTo(runner.getLastRace())
+        .jsonPath("$.version").doesNotExist();
+  }
+
+  @Test
+  public void shouldFindByNicknameReturnNotModified() {
+    //Given
+    Runner runner = buildRunner().toBuilder().version(3L).build();
+    when(reactiveRunnersService.findByNickname(runner.getNickname())).thenReturn(Mono.just(runner));
+
+    //When && Then
+    webTestClient.get().uri("/" + runner.getNickname())
+        .header("If-None-Match", "\"3\"")
+        .exchange()
+        .expectStatus().isNotModified();
+  }
+
+  @Test
+  public void shouldFindByNicknameReturnNotFound() {
+    //Given
+    when(reactiveRunnersService.findByNickname("nonExistingNickname")).thenReturn(Mono.empty());
+
+    //When && Then
+    webTestClient.get().uri("/nonExistingNickname")
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  public void shouldCreate() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("theLastRace").build();
+    when(reactiveRunnersService.create(runner)).thenReturn(Mono.just(runner));
+
+    //When && Then
+    webTestClient.post().uri("/")
+        .contentType(APPLICATION_JSON)
+        .bodyValue(toJson(runner))
+        .exchange()
+        .expectStatus().isCreated()
+        .expectBody()
+        .jsonPath("$.nickname").isEqualTo(runner.getNickname());
+
+    verify(reactiveRunnersService).create(runner);
+  }
+
+  @Test
+  public void shouldCreateReturnConflictWhenAlreadyExist() throws Exception {
+    //Given
+    Runner runner = buildRunner();
+    when(reactiveRunnersService.create(runner)).thenReturn(Mono.error(
+        new ExistingRunnerException("Runner with " + runner.getNickname() + " already exists")));
+
+    //When && Then
+    webTestClient.post().uri("/")
+        .contentType(APPLICATION_JSON)
+        .bodyValue(toJson(runner))
+        .exchange()
+        .expectStatus().isEqualTo(409)
+        .expectBody()
+        .jsonPath("$.errorMessage").isEqualTo("Runner with theNickname already exists");
+  }
+
+  @Test
+  public void shouldUpdateWithIfMatch() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("newRace").build();
+    Runner updated = runner.toBuilder().version(3L).build();
+    when(reactiveRunnersService.update(runner.toBuilder().version(2L).build()))
+        .thenReturn(Mono.just(updated));
+
+    //When && Then
+    webTestClient.put().uri("/" + runner.getNickname())
+        .contentType(APPLICATION_JSON)
+        .header("If-Match", "\"2\"")
+        .bodyValue(toJson(runner))
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().valueEquals("ETag", "\"3\"");
+  }
+
+  @Test
+  public void shouldUpdateReturnMinimal() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("newRace").build();
+    when(reactiveRunnersService.updateLastRace(runner)).thenReturn(Mono.empty());
+
+    //When && Then
+    webTestClient.put().uri("/" + runner.getNickname())
+        .contentType(APPLICATION_JSON)
+        .header("Prefer", "return=minimal")
+        .bodyValue(toJson(runner))
+        .exchange()
+        .expectStatus().isNoContent()
+        .expectHeader().valueEquals("Preference-Applied", "return=minimal")
+        .expectBody().isEmpty();
+  }
+
+  @Test
+  public void shouldUpdateReturnPreconditionFailed() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("newRace").build();
+    when(reactiveRunnersService.update(any())).thenReturn(Mono.error(
+        new RunnerVersionMismatchException("stale")));
+
+    //When && Then
+    webTestClient.put().uri("/" + runner.getNickname())
+        .contentType(APPLICATION_JSON)
+        .header("If-Match", "\"2\"")
+        .bodyValue(toJson(runner))
+        .exchange()
+        .expectStatus().isEqualTo(412);
+  }
+
+  @Test
+  public void shouldDeleteByNickname() {
+    //Given
+    when(reactiveRunnersService.deleteByNickName("theNickname")).thenReturn(Mono.empty());
+
+    //When && Then
+    webTestClient.delete().uri("/theNickname")
+        .exchange()
+        .expectStatus().isNoContent();
+
+    verify(reactiveRunnersService).deleteByNickName("theNickname");
+  }
+
+  @Configuration
+  @SpringBootApplication
+  static class ReactiveRunnersControllerTestConfig {
+
+  }
+}
@@ -1,30 +1,74 @@
 package com.runnersteam.runners.controller;
 
+import static com.runnersteam.runners.config.RunnersExceptionHandler.OUTCOMES_COUNTER;
+import static com.runnersteam.runners.model.RunnerCreationStatus.CREATED;
+import static com.runnersteam.runners.model.RunnerCreationStatus.DUPLICATE_EMAIL;
 import static com.runnersteam.runners.util.TestData.buildRunner;
 import static com.runnersteam.runners.util.TestData.toJson;
 import static java.net.URI.create;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.LocalDate.now;
 import static java.time.format.DateTimeFormatter.ISO_DATE;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.runnersteam.runners.cache.EncodedRunnersCache;
+import com.runnersteam.runners.config.CborConfiguration;
+import com.runnersteam.runners.config.RunnerShards;
 import com.runnersteam.runners.config.RunnersExceptionHandler;
 import com.runnersteam.runners.controller.RunnersControllerTest.RunnersControllerTestConfig;
 import com.runnersteam.runners.exception.ExistingRunnerException;
 import com.runnersteam.runners.exception.RunnerNotFoundException;
+import com.runnersteam.runners.exception.RunnerVersionMismatchException;
+import com.runnersteam.runners.metrics.HotKeys;
+import com.runnersteam.runners.model.RaceResult;
+import com.runnersteam.runners.model.RaceResultReject;
+import com.runnersteam.runners.model.RaceResultsReceipt;
 import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerChange;
+import com.runnersteam.runners.model.RunnerChangesPage;
+import com.runnersteam.runners.model.RunnerCreationResult;
+import com.runnersteam.runners.model.RunnerOperation;
+import com.runnersteam.runners.model.RunnersLookup;
+import com.runnersteam.runners.model.RunnerSummary;
+import com.runnersteam.runners.model.RunnersPage;
+import com.runnersteam.runners.service.RaceResultsService;
+import com.runnersteam.runners.service.RunnerChangeFeed;
+import com.runnersteam.runners.service.RunnersExporter;
+import com.runnersteam.runners.service.RunnersImporter;
 import com.runnersteam.runners.service.RunnersService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,21 +76,48 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @WebMvcTest(controllers = RunnersController.class)
-@ContextConfiguration(classes = {RunnersControllerTestConfig.class, RunnersExceptionHandler.class})
+@ContextConfiguration(classes = {RunnersControllerTestConfig.class, RunnersExceptionHandler.class,
+    RunnersExporter.class, RunnersImporter.class, SimpleMeterRegistry.class,
+    CborConfiguration.class})
+@TestPropertySource(properties = "runners.import.chunk-size=2")
 @ExtendWith(SpringExtension.class)
 public class RunnersControllerTest {
 
   @Autowired
   private MockMvc mockMvc;
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
   @MockBean
   private RunnersService runnersService;
 
+  @MockBean
+  private RaceResultsService raceResultsService;
+
+  @MockBean
+  private RunnerChangeFeed runnerChangeFeed;
+
+  @MockBean
+  private RunnerShards runnerShards;
+
+  @MockBean
+  private HotKeys hotKeys;
+
+  @MockBean
+  private EncodedRunnersCache encodedRunnersCache;
+
   @Test
   public void shouldFindByNickname() throws Exception {
     //Given
@@ -68,6 +139,71 @@ public class RunnersControllerTest {
         .andExpect(jsonPath("$.lastRace", is(runner.getLastRace())));
 
     verify(runnersService).findByNickname(runner.getNickname());
+    verify(hotKeys).read(runner.getNickname());
+  }
+
+  @Test
+  public void shouldFindByNicknameFromEncodedCache() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().version(3L).build();
+    when(runnersService.findByNickname(runner.getNickname())).thenReturn(of(runner));
+    when(encodedRunnersCache.isEnabled()).thenReturn(true);
+    when(encodedRunnersCache.encode(runner.getNickname(), runner))
+        .thenReturn("{\"nickname\":\"encoded\"}".getBytes(UTF_8));
+
+    //When && Then
+    mockMvc.perform(get(create("/" + runner.getNickname())))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(APPLICATION_JSON))
+        .andExpect(header().string("ETag", "\"3\""))
+        .andExpect(jsonPath("$.nickname", is("encoded")));
+  }
+
+  @Test
+  public void shouldFindByNicknameAsCbor() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().subscriptionDate(now()).build();
+    when(runnersService.findByNickname(runner.getNickname())).thenReturn(of(runner));
+    when(encodedRunnersCache.isEnabled()).thenReturn(true);
+
+    //When
+    MvcResult result = mockMvc.perform(get(create("/" + runner.getNickname()))
+        .accept(APPLICATION_CBOR))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(APPLICATION_CBOR))
+        .andReturn();
+
+    //Then
+    assertThat(new CBORMapper().findAndRegisterModules()
+        .readValue(result.getResponse().getContentAsByteArray(), Runner.class))
+        .isEqualTo(runner);
+    verify(encodedRunnersCache, never()).encode(anyString(), any());
+  }
+
+  @Test
+  public void shouldFindByNicknameWithETag() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().version(3L).build();
+    when(runnersService.findByNickname(runner.getNickname())).thenReturn(of(runner));
+
+    //When && Then
+    mockMvc.perform(get(create("/" + runner.getNickname())))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"3\""))
+        .andExpect(jsonPath("$.version").doesNotExist());
+  }
+
+  @Test
+  public void shouldFindByNicknameReturnNotModifiedWhenETagMatches() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().version(3L).build();
+    when(runnersService.findByNickname(runner.getNickname())).thenReturn(of(runner));
+
+    //When && Then
+    mockMvc.perform(get(create("/" + runner.getNickname())).header("If-None-Match", "\"3\""))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", "\"3\""))
+        .andExpect(content().string(""));
   }
 
   @Test
@@ -83,6 +219,59 @@ public class RunnersControllerTest {
     verify(runnersService).findByNickname(nickname);
   }
 
+  @Test
+  public void shouldList() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("theLastRace").build();
+    RunnerSummary summary = new SpelAwareProxyProjectionFactory()
+        .createProjection(RunnerSummary.class, runner);
+    when(runnersService.list("after", 1)).thenReturn(
+        new RunnersPage(List.of(summary), runner.getNickname()));
+
+    //When && Then
+    mockMvc.perform(get(create("/?after=after&limit=1")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.runners[0].nickname", is(runner.getNickname())))
+        .andExpect(jsonPath("$.runners[0].name", is(runner.getName())))
+        .andExpect(jsonPath("$.runners[0].lastRace", is(runner.getLastRace())))
+        .andExpect(jsonPath("$.runners[0].surname").doesNotExist())
+        .andExpect(jsonPath("$.next", is(runner.getNickname())));
+
+    verify(runnersService).list("after", 1);
+  }
+
+  @Test
+  public void shouldExportAsNdjson() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().subscriptionDate(now()).build();
+    Runner other = runner.toBuilder().nickname("other").build();
+    givenExportedRunners(runner, other);
+
+    //When && Then
+    mockMvc.perform(get(create("/export")))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("application/x-ndjson"))
+        .andExpect(content().string(toJson(runner) + "\n" + toJson(other) + "\n"));
+  }
+
+  @Test
+  public void shouldExportAsCsv() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().subscriptionDate(now()).lastRace("theLastRace").build();
+    givenExportedRunners(runner);
+
+    //When && Then
+    mockMvc.perform(get(create("/export?format=CSV")))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("text/csv"))
+        .andExpect(content().string(
+            "nickname,name,surname,email,birthDate,subscriptionDate,lastRace,lastRaceDate,"
+                + "raceCount,personalBestSeconds\n"
+                + String.join(",", runner.getNickname(), runner.getName(), runner.getSurname(),
+                runner.getEmail(), runner.getBirthDate().format(ISO_DATE),
+                runner.getSubscriptionDate().format(ISO_DATE), runner.getLastRace()) + ",,,\n"));
+  }
+
   @Test
   public void shouldCreate() throws Exception {
     //Given
@@ -108,6 +297,22 @@ public class RunnersControllerTest {
     verify(runnersService).create(runner);
   }
 
+  @Test
+  public void shouldCreateFromCbor() throws Exception {
+    //Given
+    Runner runner = buildRunner();
+    when(runnersService.create(runner)).thenReturn(runner);
+
+    //When && Then
+    mockMvc.perform(post(create("/"))
+        .contentType(APPLICATION_CBOR)
+        .content(new CBORMapper().findAndRegisterModules().writeValueAsBytes(runner)))
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.nickname", is(runner.getNickname())));
+
+    verify(runnersService).create(runner);
+  }
+
   @Test
   public void shouldCreateReturnConflictWhenAlreadyExist() throws Exception {
     //Given
@@ -115,6 +320,7 @@ public class RunnersControllerTest {
         .subscriptionDate(now()).lastRace("theLastRace").build();
     when(runnersService.create(runner)).thenThrow(
         new ExistingRunnerException("runner with " + runner.getNickname() + " already exists"));
+    double duplicates = duplicateOutcomes();
 
     //When && Then
     mockMvc.perform(post(create("/"))
@@ -125,6 +331,193 @@ public class RunnersControllerTest {
             is("runner with " + runner.getNickname() + " already exists")));
 
     verify(runnersService).create(runner);
+    assertThat(duplicateOutcomes()).isEqualTo(duplicates + 1);
+  }
+
+  @Test
+  public void shouldCreateAll() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().subscriptionDate(now()).build();
+    Runner duplicated = runner.toBuilder().nickname("duplicated").build();
+    when(runnersService.createAll(List.of(runner, duplicated))).thenReturn(List.of(
+        new RunnerCreationResult(runner.getNickname(), CREATED),
+        new RunnerCreationResult(duplicated.getNickname(), DUPLICATE_EMAIL)));
+
+    //When && Then
+    mockMvc.perform(post(create("/batch"))
+        .contentType(APPLICATION_JSON)
+        .content(toJson(List.of(runner, duplicated))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].nickname", is(runner.getNickname())))
+        .andExpect(jsonPath("$[0].status", is("CREATED")))
+        .andExpect(jsonPath("$[1].nickname", is(duplicated.getNickname())))
+        .andExpect(jsonPath("$[1].status", is("DUPLICATE_EMAIL")));
+
+    verify(runnersService).createAll(List.of(runner, duplicated));
+  }
+
+  @Test
+  public void shouldLookup() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().subscriptionDate(now()).build();
+    when(runnersService.findAllByNickname(List.of("unknown", runner.getNickname())))
+        .thenReturn(new RunnersLookup(List.of(runner), List.of("unknown")));
+
+    //When && Then
+    mockMvc.perform(post(create("/lookup"))
+        .contentType(APPLICATION_JSON)
+        .content(toJson(List.of("unknown", runner.getNickname()))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.runners[0].nickname", is(runner.getNickname())))
+        .andExpect(jsonPath("$.runners[0].email", is(runner.getEmail())))
+        .andExpect(jsonPath("$.missing[0]", is("unknown")));
+
+    verify(runnersService).findAllByNickname(List.of("unknown", runner.getNickname()));
+  }
+
+  @Test
+  public void shouldPollChanges() throws Exception {
+    //Given
+    RunnerChange change = RunnerChange.builder().sequence(8).nickname("theNickname")
+        .operation(RunnerOperation.UPDATE).changedAt(Instant.EPOCH).build();
+    DeferredResult<RunnerChangesPage> page = new DeferredResult<>();
+    page.setResult(new RunnerChangesPage(List.of(change), 8));
+    when(runnerShards.count()).thenReturn(1);
+    when(runnerChangeFeed.poll(0, 7, 100, 5000)).thenReturn(page);
+
+    //When
+    MvcResult result = mockMvc.perform(get(create("/changes?since=7&wait=5000"))
+        .accept(APPLICATION_JSON))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    //Then
+    mockMvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.changes[0].sequence", is(8)))
+        .andExpect(jsonPath("$.changes[0].operation", is("UPDATE")))
+        .andExpect(jsonPath("$.next", is(8)));
+  }
+
+  @Test
+  public void shouldStreamChangesFromLastEventId() throws Exception {
+    //Given
+    when(runnerShards.count()).thenReturn(1);
+    when(runnerChangeFeed.stream(0, 12)).thenReturn(new SseEmitter());
+
+    //When && Then
+    mockMvc.perform(get(create("/changes?since=3"))
+        .accept(TEXT_EVENT_STREAM)
+        .header("Last-Event-ID", "12"))
+        .andExpect(request().asyncStarted());
+
+    verify(runnerChangeFeed).stream(0, 12);
+  }
+
+  @Test
+  public void shouldAddRaceResults() throws Exception {
+    //Given
+    RaceResult result = RaceResult.builder().nickname("theNickname").race("theRace")
+        .raceDate(LocalDate.of(2019, 1, 1)).finishTimeSeconds(3600).build();
+    when(raceResultsService.addAll(List.of(result, result))).thenReturn(new RaceResultsReceipt(1,
+        List.of(new RaceResultReject(1, "theNickname", "runner not found"))));
+
+    //When && Then
+    mockMvc.perform(post(create("/results"))
+        .contentType(APPLICATION_JSON)
+        .content(toJson(List.of(result, result))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.accepted", is(1)))
+        .andExpect(jsonPath("$.rejected[0].index", is(1)))
+        .andExpect(jsonPath("$.rejected[0].reason", is("runner not found")));
+
+    verify(raceResultsService).addAll(List.of(result, result));
+  }
+
+  @Test
+  public void shouldFindRaceResults() throws Exception {
+    //Given
+    RaceResult result = RaceResult.builder().nickname("theNickname").race("theRace")
+        .raceDate(LocalDate.of(2019, 1, 1)).finishTimeSeconds(3600).build();
+    when(raceResultsService.findLatest("theNickname", 5)).thenReturn(List.of(result));
+
+    //When && Then
+    mockMvc.perform(get(create("/theNickname/results?limit=5")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].race", is("theRace")))
+        .andExpect(jsonPath("$[0].raceDate", is("2019-01-01")))
+        .andExpect(jsonPath("$[0].finishTimeSeconds", is(3600)));
+  }
+
+  @Test
+  public void shouldImportCsvInChunks() throws Exception {
+    //Given
+    List<List<String>> chunks = new ArrayList<>();
+    when(runnersService.createAll(any())).thenAnswer(invocationOnMock -> {
+      List<Runner> chunk = invocationOnMock.getArgument(0);
+      chunks.add(chunk.stream().map(Runner::getNickname).collect(toList()));
+      return chunk.stream()
+          .map(runner -> new RunnerCreationResult(runner.getNickname(),
+              "c".equals(runner.getNickname()) ? DUPLICATE_EMAIL : CREATED))
+          .collect(toList());
+    });
+    String csv = "nickname,name,surname,email,birthDate\n"
+        + "a,theName,theSurname,a@email,1980-01-01\n"
+        + "b,theName,theSurname,,1980-01-01\n"
+        + "c,theName,theSurname,c@email,1980-01-01\n"
+        + "d,theName,theSurname,d@email,notADate\n"
+        + "e,theName,theSurname,e@email,1980-01-01\n";
+
+    //When
+    String body = mockMvc.perform(post(create("/import"))
+        .contentType("text/csv")
+        .content(csv))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "application/x-ndjson"))
+        .andReturn().getResponse().getContentAsString();
+
+    //Then
+    String[] lines = body.split("\n");
+    assertThat(lines).hasSize(5);
+    assertThat(lines[0])
+        .isEqualTo("{\"line\":3,\"nickname\":\"b\",\"reason\":\"email is required\"}");
+    assertThat(lines[1])
+        .isEqualTo("{\"line\":4,\"nickname\":\"c\",\"reason\":\"DUPLICATE_EMAIL\"}");
+    assertThat(lines[2]).isEqualTo("{\"processed\":3,\"imported\":1,\"rejected\":2}");
+    assertThat(lines[3]).startsWith("{\"line\":5,\"reason\":");
+    assertThat(lines[4]).isEqualTo("{\"processed\":5,\"imported\":2,\"rejected\":3}");
+    assertThat(chunks).containsExactly(List.of("a", "c"), List.of("e"));
+    assertThat(body).endsWith("}\n");
+  }
+
+  @Test
+  public void shouldImportRowsOneByOneWhenChunkViolatesConstraint() throws Exception {
+    //Given
+    when(runnersService.createAll(any())).thenAnswer(invocationOnMock -> {
+      List<Runner> chunk = invocationOnMock.getArgument(0);
+      if (chunk.stream().anyMatch(runner -> "c".equals(runner.getNickname()))) {
+        throw new DataIntegrityViolationException("Duplicate entry 'c@email' for key 'email'");
+      }
+      return chunk.stream()
+          .map(runner -> new RunnerCreationResult(runner.getNickname(), CREATED))
+          .collect(toList());
+    });
+    String csv = "nickname,name,surname,email,birthDate\n"
+        + "a,theName,theSurname,a@email,1980-01-01\n"
+        + "c,theName,theSurname,c@email,1980-01-01\n";
+
+    //When
+    String body = mockMvc.perform(post(create("/import"))
+        .contentType("text/csv")
+        .content(csv))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+
+    //Then
+    String[] lines = body.split("\n");
+    assertThat(lines).containsExactly(
+        "{\"line\":3,\"nickname\":\"c\",\"reason\":\"duplicate nickname or email\"}",
+        "{\"processed\":2,\"imported\":1,\"rejected\":1}");
   }
 
   @Test
@@ -150,6 +543,74 @@ public class RunnersControllerTest {
         .andExpect(jsonPath("$.lastRace", is(runner.getLastRace())));
 
     verify(runnersService).update(runner);
+    verify(hotKeys).write(runner.getNickname());
+  }
+
+  @Test
+  public void shouldUpdateReturningMinimal() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("theLastRace").build();
+
+    //When && Then
+    mockMvc.perform(put(create("/" + runner.getNickname()))
+        .header("Prefer", "return=minimal")
+        .contentType(APPLICATION_JSON)
+        .content(toJson(runner)))
+        .andExpect(status().isNoContent())
+        .andExpect(header().string("Preference-Applied", "return=minimal"))
+        .andExpect(content().string(""));
+
+    verify(runnersService).updateLastRace(runner);
+    verify(runnersService, never()).update(any());
+  }
+
+  @Test
+  public void shouldUpdateWhenIfMatchVersion() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("theLastRace").build();
+    Runner toUpdate = runner.toBuilder().version(3L).build();
+    when(runnersService.update(toUpdate)).thenReturn(runner.toBuilder().version(4L).build());
+
+    //When && Then
+    mockMvc.perform(put(create("/" + runner.getNickname()))
+        .header("If-Match", "\"3\"")
+        .contentType(APPLICATION_JSON)
+        .content(toJson(runner)))
+        .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"4\""));
+
+    verify(runnersService).update(toUpdate);
+  }
+
+  @Test
+  public void shouldUpdateReturnPreconditionFailedWhenVersionMismatch() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("theLastRace").build();
+    when(runnersService.update(runner.toBuilder().version(3L).build())).thenThrow(
+        new RunnerVersionMismatchException("runner is not at version 3"));
+
+    //When && Then
+    mockMvc.perform(put(create("/" + runner.getNickname()))
+        .header("If-Match", "\"3\"")
+        .contentType(APPLICATION_JSON)
+        .content(toJson(runner)))
+        .andExpect(status().isPreconditionFailed())
+        .andExpect(jsonPath("$.errorMessage", is("runner is not at version 3")));
+  }
+
+  @Test
+  public void shouldUpdateReturnPreconditionFailedWhenIfMatchIsWeak() throws Exception {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("theLastRace").build();
+
+    //When && Then
+    mockMvc.perform(put(create("/" + runner.getNickname()))
+        .header("If-Match", "W/\"3\"")
+        .contentType(APPLICATION_JSON)
+        .content(toJson(runner)))
+        .andExpect(status().isPreconditionFailed());
+
+    verify(runnersService, never()).update(any());
   }
 
   @Test
@@ -197,6 +658,18 @@ public class RunnersControllerTest {
     verify(runnersService).deleteByNickName(theNickname);
   }
 
+  private void givenExportedRunners(Runner... runners) {
+    doAnswer(invocationOnMock -> {
+      Consumer<Runner> consumer = invocationOnMock.getArgument(0);
+      Stream.of(runners).forEach(consumer);
+      return null;
+    }).when(runnersService).export(any());
+  }
+
+  private double duplicateOutcomes() {
+    return meterRegistry.counter(OUTCOMES_COUNTER, "outcome", "duplicate").count();
+  }
+
   @Configuration
   @SpringBootApplication
   static class RunnersControllerTestConfig {
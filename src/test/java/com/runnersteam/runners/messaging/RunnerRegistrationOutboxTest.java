@@ -0,0 +1,73 @@
+package com.runnersteam.runners.messaging;
+
+import static com.runnersteam.runners.util.TestData.buildRunner;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.runnersteam.runners.model.OutboxEvent;
+import com.runnersteam.runners.model.Runner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RunnerRegistrationOutboxTest {
+
+  private RunnerRegistrationOutbox runnerRegistrationOutbox = new RunnerRegistrationOutbox();
+
+  @BeforeEach
+  public void setUp() {
+    ReflectionTestUtils.setField(runnerRegistrationOutbox, "objectMapper",
+        Jackson2ObjectMapperBuilder.json().build());
+    ReflectionTestUtils.setField(runnerRegistrationOutbox, "objectMapperBuilder",
+        Jackson2ObjectMapperBuilder.json());
+  }
+
+  @Test
+  public void shouldEncodeJsonEvent() throws Exception {
+    //Given
+    Runner runner = buildRunner();
+    ReflectionTestUtils.setField(runnerRegistrationOutbox, "contentType", APPLICATION_JSON_VALUE);
+    runnerRegistrationOutbox.init();
+
+    //When
+    OutboxEvent event = runnerRegistrationOutbox.toEvent(runner);
+
+    //Then
+    assertThat(event.getNickname()).isEqualTo(runner.getNickname());
+    assertThat(event.getContentType()).isEqualTo(APPLICATION_JSON_VALUE);
+    assertThat(new ObjectMapper().findAndRegisterModules()
+        .readValue(event.getPayload(), Runner.class)).isEqualTo(runner);
+  }
+
+  @Test
+  public void shouldEncodeCborEvent() throws Exception {
+    //Given
+    Runner runner = buildRunner();
+    ReflectionTestUtils.setField(runnerRegistrationOutbox, "contentType", APPLICATION_CBOR_VALUE);
+    runnerRegistrationOutbox.init();
+
+    //When
+    OutboxEvent event = runnerRegistrationOutbox.toEvent(runner);
+
+    //Then
+    assertThat(event.getContentType()).isEqualTo(APPLICATION_CBOR_VALUE);
+    assertThat(new CBORMapper().findAndRegisterModules()
+        .readValue(event.getPayload(), Runner.class)).isEqualTo(runner);
+  }
+
+  @Test
+  public void shouldRejectUnsupportedContentType() {
+    //Given
+    ReflectionTestUtils.setField(runnerRegistrationOutbox, "contentType", "application/xml");
+
+    //When && Then
+    assertThatThrownBy(() -> runnerRegistrationOutbox.init())
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("application/xml");
+  }
+}
@@ -0,0 +1,135 @@
+package com.runnersteam.runners.messaging;
+
+import static com.runnersteam.runners.messaging.RunnerRegistrationRelay.OUTBOX_ID_HEADER;
+import static com.runnersteam.runners.metrics.RunnersMetricsAspect.MESSAGING_TIMER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.messaging.support.MessageBuilder.withPayload;
+
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.OutboxEvent;
+import com.runnersteam.runners.repository.OutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+@ExtendWith(MockitoExtension.class)
+public class RunnerRegistrationRelayTest {
+
+  @InjectMocks
+  private RunnerRegistrationRelay runnerRegistrationRelay;
+
+  @Spy
+  private RunnerShards runnerShards = new RunnerShards();
+
+  @Mock
+  private OutboxRepository outboxRepository;
+
+  @Mock
+  private MessageChannel newRunnerRegistrationOutput;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @BeforeEach
+  public void setUp() {
+    ReflectionTestUtils.setField(runnerRegistrationRelay, "meterRegistry", meterRegistry);
+    ReflectionTestUtils.setField(runnerRegistrationRelay, "batchSize", 2);
+    ReflectionTestUtils.setField(runnerRegistrationRelay, "confirmTimeout", Duration.ofMillis(50));
+    ReflectionTestUtils.setField(runnerRegistrationRelay, "claimTimeout", Duration.ofSeconds(60));
+    runnerRegistrationRelay.init();
+  }
+
+  @Test
+  public void shouldRelayAndDeleteUntilDrained() {
+    //Given
+    when(outboxRepository.claimNextBatch(2, Duration.ofSeconds(60)))
+        .thenReturn(List.of(event(1L), event(2L)))
+        .thenReturn(List.of(event(3L)));
+
+    //When
+    runnerRegistrationRelay.relay();
+
+    //Then
+    verify(newRunnerRegistrationOutput, times(3)).send(any(Message.class));
+    assertThat(meterRegistry.timer(MESSAGING_TIMER, "channel", RunnerBinding.OUTPUT).count())
+        .isEqualTo(3);
+    verify(outboxRepository).deleteAll(List.of(1L, 2L));
+    verify(outboxRepository).deleteAll(List.of(3L));
+    verify(transactionManager, times(4)).getTransaction(any());
+  }
+
+  @Test
+  public void shouldDeleteOnlyConfirmedEvents() {
+    //Given
+    ReflectionTestUtils.setField(runnerRegistrationRelay, "publisherConfirms", true);
+    when(outboxRepository.claimNextBatch(2, Duration.ofSeconds(60)))
+        .thenReturn(List.of(event(1L), event(2L)));
+    when(newRunnerRegistrationOutput.send(any(Message.class))).thenAnswer(invocationOnMock -> {
+      Message<?> sent = invocationOnMock.getArgument(0);
+      if (sent.getHeaders().get(OUTBOX_ID_HEADER, Long.class) == 1L) {
+        runnerRegistrationRelay.onConfirm(withPayload(sent).build());
+      }
+      return true;
+    });
+
+    //When
+    runnerRegistrationRelay.relay();
+
+    //Then
+    verify(outboxRepository).deleteAll(List.of(1L));
+    verify(outboxRepository).releaseAll(List.of(2L));
+  }
+
+  @Test
+  public void shouldPublishOutsideReadCommittedClaimTransactions() {
+    //Given
+    when(outboxRepository.claimNextBatch(2, Duration.ofSeconds(60))).thenReturn(List.of(event(1L)));
+
+    //When
+    runnerRegistrationRelay.relay();
+
+    //Then
+    InOrder inOrder = inOrder(outboxRepository, transactionManager, newRunnerRegistrationOutput);
+    inOrder.verify(outboxRepository).claimNextBatch(2, Duration.ofSeconds(60));
+    inOrder.verify(transactionManager).commit(any());
+    inOrder.verify(newRunnerRegistrationOutput).send(any(Message.class));
+    inOrder.verify(transactionManager).getTransaction(any());
+    inOrder.verify(outboxRepository).deleteAll(List.of(1L));
+    ArgumentCaptor<TransactionDefinition> definition =
+        ArgumentCaptor.forClass(TransactionDefinition.class);
+    verify(transactionManager, times(2)).getTransaction(definition.capture());
+    assertThat(definition.getAllValues()).extracting(TransactionDefinition::getIsolationLevel)
+        .containsOnly(TransactionDefinition.ISOLATION_READ_COMMITTED);
+  }
+
+  private OutboxEvent event(Long id) {
+    return OutboxEvent.builder()
+        .id(id)
+        .nickname("nickname" + id)
+        .payload(new byte[0])
+        .contentType("application/json")
+        .build();
+  }
+}
@@ -0,0 +1,96 @@
+package com.runnersteam.runners.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.runnersteam.runners.model.HotKey;
+import com.runnersteam.runners.model.HotKeysReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class HotKeysTest {
+
+  private HotKeys hotKeys = new HotKeys();
+
+  @BeforeEach
+  public void setUp() {
+    ReflectionTestUtils.setField(hotKeys, "size", 2);
+    ReflectionTestUtils.setField(hotKeys, "buckets", 3);
+    ReflectionTestUtils.setField(hotKeys, "bucketInterval", 10000L);
+    ReflectionTestUtils.setField(hotKeys, "depth", 4);
+    ReflectionTestUtils.setField(hotKeys, "width", 256);
+    hotKeys.init();
+  }
+
+  @Test
+  public void shouldReportHottestReadsAndWritesSeparately() {
+    //Given
+    repeat("celebrity", 50);
+    repeat("Celebrity", 50);
+    repeat("popular", 30);
+    for (int i = 0; i < 40; i++) {
+      hotKeys.read("runner" + i);
+    }
+    hotKeys.write("celebrity");
+
+    //When
+    HotKeysReport report = hotKeys.report();
+
+    //Then
+    assertThat(report.getWindowSeconds()).isEqualTo(30);
+    assertThat(report.getReads()).isEqualTo(170);
+    assertThat(report.getWrites()).isEqualTo(1);
+    assertThat(report.getTopReads()).extracting(HotKey::getNickname)
+        .containsExactly("celebrity", "popular");
+    assertThat(report.getTopReads().get(0).getCount()).isGreaterThanOrEqualTo(100);
+    assertThat(report.getTopReads().get(1).getCount()).isGreaterThanOrEqualTo(30);
+    assertThat(report.getTopWrites()).containsExactly(new HotKey("celebrity", 1));
+  }
+
+  @Test
+  public void shouldAddUpBucketsWithinWindow() {
+    //Given
+    repeat("celebrity", 10);
+    hotKeys.rotate();
+    repeat("celebrity", 5);
+    hotKeys.rotate();
+
+    //When
+    HotKeysReport report = hotKeys.report();
+
+    //Then
+    assertThat(report.getTopReads()).containsExactly(new HotKey("celebrity", 15));
+  }
+
+  @Test
+  public void shouldForgetKeysOlderThanWindow() {
+    //Given
+    repeat("celebrity", 10);
+    hotKeys.rotate();
+    repeat("popular", 5);
+    hotKeys.rotate();
+    hotKeys.rotate();
+
+    //When
+    HotKeysReport report = hotKeys.report();
+
+    //Then
+    assertThat(report.getReads()).isEqualTo(5);
+    assertThat(report.getTopReads()).containsExactly(new HotKey("popular", 5));
+  }
+
+  @Test
+  public void shouldIgnoreMissingNicknames() {
+    //When
+    hotKeys.write(null);
+
+    //Then
+    assertThat(hotKeys.report().getWrites()).isZero();
+  }
+
+  private void repeat(String nickname, int times) {
+    for (int i = 0; i < times; i++) {
+      hotKeys.read(nickname);
+    }
+  }
+}
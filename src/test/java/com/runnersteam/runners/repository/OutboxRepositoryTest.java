@@ -0,0 +1,103 @@
+package com.runnersteam.runners.repository;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.runnersteam.runners.model.OutboxEvent;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@DataJpaTest
+@ExtendWith(SpringExtension.class)
+@Import(OutboxRepository.class)
+public class OutboxRepositoryTest {
+
+  private static final Duration CLAIM_TIMEOUT = Duration.ofSeconds(60);
+
+  @Autowired
+  private OutboxRepository outboxRepository;
+
+  @Test
+  public void shouldInsertAndClaimInOrder() {
+    //Given
+    outboxRepository.insertAll(List.of(event("first"), event("second"), event("third")));
+
+    //When
+    List<OutboxEvent> batch = outboxRepository.claimNextBatch(2, CLAIM_TIMEOUT);
+
+    //Then
+    assertThat(batch).extracting("nickname").containsExactly("first", "second");
+    assertThat(batch.get(0).getPayload()).isEqualTo("first".getBytes(UTF_8));
+    assertThat(batch.get(0).getContentType()).isEqualTo("application/json");
+    assertThat(batch.get(0).getId()).isLessThan(batch.get(1).getId());
+  }
+
+  @Test
+  public void shouldSkipClaimedEvents() {
+    //Given
+    outboxRepository.insertAll(List.of(event("first"), event("second")));
+    outboxRepository.claimNextBatch(1, CLAIM_TIMEOUT);
+
+    //When
+    List<OutboxEvent> batch = outboxRepository.claimNextBatch(10, CLAIM_TIMEOUT);
+
+    //Then
+    assertThat(batch).extracting("nickname").containsExactly("second");
+  }
+
+  @Test
+  public void shouldClaimOneEventPerNicknameAtATime() {
+    //Given
+    outboxRepository.insertAll(List.of(event("first"), event("first"), event("second")));
+
+    //When
+    List<OutboxEvent> batch = outboxRepository.claimNextBatch(10, CLAIM_TIMEOUT);
+
+    //Then
+    assertThat(batch).extracting("nickname").containsExactly("first", "second");
+    assertThat(outboxRepository.claimNextBatch(10, CLAIM_TIMEOUT)).isEmpty();
+  }
+
+  @Test
+  public void shouldClaimReleasedAndExpiredEventsAgain() {
+    //Given
+    outboxRepository.insertAll(List.of(event("first"), event("second")));
+    List<OutboxEvent> released = outboxRepository.claimNextBatch(1, CLAIM_TIMEOUT);
+    outboxRepository.claimNextBatch(1, Duration.ofSeconds(-1));
+
+    //When
+    outboxRepository.releaseAll(List.of(released.get(0).getId()));
+
+    //Then
+    assertThat(outboxRepository.claimNextBatch(10, CLAIM_TIMEOUT)).extracting("nickname")
+        .containsExactly("first", "second");
+  }
+
+  @Test
+  public void shouldDeleteAll() {
+    //Given
+    outboxRepository.insertAll(List.of(event("first"), event("first"), event("second")));
+    List<OutboxEvent> batch = outboxRepository.claimNextBatch(1, CLAIM_TIMEOUT);
+
+    //When
+    outboxRepository.deleteAll(List.of(batch.get(0).getId()));
+
+    //Then
+    assertThat(outboxRepository.claimNextBatch(10, CLAIM_TIMEOUT)).extracting("nickname")
+        .containsExactly("first", "second");
+  }
+
+  private OutboxEvent event(String nickname) {
+    return OutboxEvent.builder()
+        .nickname(nickname)
+        .payload(nickname.getBytes(UTF_8))
+        .contentType("application/json")
+        .build();
+  }
+}
@@ -0,0 +1,63 @@
+package com.runnersteam.runners.repository;
+
+import static com.runnersteam.runners.util.TestData.buildRunner;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.runnersteam.runners.model.RaceResult;
+import com.runnersteam.runners.model.Runner;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@DataJpaTest
+@ExtendWith(SpringExtension.class)
+@Import(RaceResultsRepository.class)
+public class RaceResultsRepositoryTest {
+
+  @Autowired
+  private TestEntityManager testEntityManager;
+
+  @Autowired
+  private RaceResultsRepository raceResultsRepository;
+
+  private Runner runner;
+
+  @BeforeEach
+  public void setUp() {
+    runner = buildRunner();
+    testEntityManager.persistAndFlush(runner);
+  }
+
+  @Test
+  public void shouldInsertAndFindLatestFirst() {
+    //Given
+    raceResultsRepository.insertAll(List.of(
+        result("first", LocalDate.of(2019, 1, 1)),
+        result("third", LocalDate.of(2019, 3, 1)),
+        result("second", LocalDate.of(2019, 2, 1))));
+
+    //When
+    List<RaceResult> latest = raceResultsRepository.findLatestByNickname(runner.getNickname(), 2);
+
+    //Then
+    assertThat(latest).extracting("race", "raceDate").containsExactly(
+        tuple("third", LocalDate.of(2019, 3, 1)), tuple("second", LocalDate.of(2019, 2, 1)));
+  }
+
+  private RaceResult result(String race, LocalDate raceDate) {
+    return RaceResult.builder()
+        .nickname(runner.getNickname())
+        .race(race)
+        .raceDate(raceDate)
+        .finishTimeSeconds(3600)
+        .build();
+  }
+}
@@ -0,0 +1,139 @@
+package com.runnersteam.runners.repository;
+
+import static com.runnersteam.runners.util.TestData.buildRunner;
+import static java.time.LocalDate.now;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.runnersteam.runners.model.OutboxEvent;
+import com.runnersteam.runners.model.Runner;
+import io.r2dbc.spi.ConnectionFactories;
+import java.util.UUID;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+public class ReactiveRunnersRepositoryTest {
+
+  private ReactiveRunnersRepository reactiveRunnersRepository;
+
+  private DatabaseClient databaseClient;
+
+  private Runner runner;
+
+  @BeforeEach
+  public void setUp() {
+    String database = "reactive" + UUID.randomUUID().toString().replace("-", "");
+    Flyway.configure()
+        .dataSource("jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1", "sa", "sa")
+        .load()
+        .migrate();
+    databaseClient = DatabaseClient.create(
+        ConnectionFactories.get("r2dbc:h2:mem://sa:sa@/" + database));
+    reactiveRunnersRepository = new ReactiveRunnersRepository();
+    ReflectionTestUtils.setField(reactiveRunnersRepository, "databaseClient", databaseClient);
+    runner = buildRunner().toBuilder().subscriptionDate(now()).version(0L).raceCount(0).build();
+  }
+
+  @Test
+  public void shouldInsertAndFindById() {
+    //Given
+    Runner withLastRace = runner.toBuilder().lastRace("theLastRace").build();
+
+    //When
+    StepVerifier.create(reactiveRunnersRepository.insert(withLastRace)).verifyComplete();
+
+    //Then
+    StepVerifier.create(reactiveRunnersRepository.findById(runner.getNickname()))
+        .expectNext(withLastRace)
+        .verifyComplete();
+  }
+
+  @Test
+  public void shouldNotFindById() {
+    //When && Then
+    StepVerifier.create(reactiveRunnersRepository.findById("nonExistingNickname"))
+        .verifyComplete();
+  }
+
+  @Test
+  public void shouldInsertFailWhenNicknameExist() {
+    //Given
+    reactiveRunnersRepository.insert(runner).block();
+
+    //When && Then
+    StepVerifier.create(reactiveRunnersRepository.insert(
+        runner.toBuilder().email("otherEmail@email.com").build()))
+        .verifyError(DataIntegrityViolationException.class);
+  }
+
+  @Test
+  public void shouldUpdateLastRaceAndBumpVersion() {
+    //Given
+    reactiveRunnersRepository.insert(runner).block();
+
+    //When
+    StepVerifier.create(reactiveRunnersRepository.updateLastRace(runner.getNickname(), "newRace"))
+        .expectNext(1)
+        .verifyComplete();
+
+    //Then
+    StepVerifier.create(reactiveRunnersRepository.findById(runner.getNickname()))
+        .expectNext(runner.toBuilder().lastRace("newRace").version(1L).build())
+        .verifyComplete();
+  }
+
+  @Test
+  public void shouldNotUpdateLastRaceAtStaleVersion() {
+    //Given
+    reactiveRunnersRepository.insert(runner).block();
+
+    //When && Then
+    StepVerifier.create(
+        reactiveRunnersRepository.updateLastRace(runner.getNickname(), "newRace", 3L))
+        .expectNext(0)
+        .verifyComplete();
+    StepVerifier.create(
+        reactiveRunnersRepository.updateLastRace(runner.getNickname(), "newRace", 0L))
+        .expectNext(1)
+        .verifyComplete();
+  }
+
+  @Test
+  public void shouldDeleteById() {
+    //Given
+    reactiveRunnersRepository.insert(runner).block();
+
+    //When
+    StepVerifier.create(reactiveRunnersRepository.deleteById(runner.getNickname()))
+        .verifyComplete();
+
+    //Then
+    StepVerifier.create(reactiveRunnersRepository.existsById(runner.getNickname()))
+        .expectNext(false)
+        .verifyComplete();
+  }
+
+  @Test
+  public void shouldInsertOutboxEvent() {
+    //Given
+    OutboxEvent event = OutboxEvent.builder()
+        .nickname(runner.getNickname())
+        .payload(new byte[]{1, 2, 3})
+        .contentType("application/json")
+        .build();
+
+    //When
+    StepVerifier.create(reactiveRunnersRepository.insertOutboxEvent(event)).verifyComplete();
+
+    //Then
+    StepVerifier.create(databaseClient.execute("select nickname from runner_outbox")
+        .map((row, rowMetadata) -> row.get("nickname", String.class))
+        .all())
+        .expectNext(runner.getNickname())
+        .verifyComplete();
+  }
+}
@@ -0,0 +1,54 @@
+package com.runnersteam.runners.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.runnersteam.runners.model.RunnerChange;
+import com.runnersteam.runners.model.RunnerOperation;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@DataJpaTest
+@ExtendWith(SpringExtension.class)
+@Import(RunnerChangesRepository.class)
+public class RunnerChangesRepositoryTest {
+
+  @Autowired
+  private RunnerChangesRepository runnerChangesRepository;
+
+  @Test
+  public void shouldInsertAndFindInSequenceOrder() {
+    //Given
+    runnerChangesRepository.insertAll(RunnerOperation.CREATE, List.of("first", "second"));
+    runnerChangesRepository.insertAll(RunnerOperation.DELETE, List.of("first"));
+    long latest = runnerChangesRepository.findLatestSequence();
+
+    //When
+    List<RunnerChange> changes = runnerChangesRepository.findAfter(latest - 3, 2);
+
+    //Then
+    assertThat(changes).extracting("sequence", "nickname", "operation").containsExactly(
+        tuple(latest - 2, "first", RunnerOperation.CREATE),
+        tuple(latest - 1, "second", RunnerOperation.CREATE));
+    assertThat(runnerChangesRepository.findAfter(latest, 10)).isEmpty();
+  }
+
+  @Test
+  public void shouldDeleteChangedBefore() {
+    //Given
+    runnerChangesRepository.insertAll(RunnerOperation.UPDATE, List.of("theNickname"));
+
+    //When
+    int deleted = runnerChangesRepository.deleteChangedBefore(Instant.now().plusSeconds(1));
+
+    //Then
+    assertThat(deleted).isEqualTo(1);
+    assertThat(runnerChangesRepository.findAfter(0, 10)).isEmpty();
+  }
+}
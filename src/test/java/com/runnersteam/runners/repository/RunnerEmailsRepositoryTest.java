@@ -0,0 +1,66 @@
+package com.runnersteam.runners.repository;
+
+import static com.runnersteam.runners.util.TestData.buildRunner;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import com.runnersteam.runners.model.Runner;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+@DataJpaTest
+@ExtendWith(SpringExtension.class)
+@Import(RunnerEmailsRepository.class)
+public class RunnerEmailsRepositoryTest {
+
+  @Autowired
+  private RunnerEmailsRepository runnerEmailsRepository;
+
+  @Test
+  public void shouldReserveAndFindByEmail() {
+    //Given
+    Runner runner = buildRunner();
+    Runner other = buildRunner().toBuilder().nickname("other").email("other@email").build();
+    runnerEmailsRepository.insertAll(List.of(runner, other));
+
+    //When
+    List<Runner> found = runnerEmailsRepository.findByEmailIn(List.of(runner.getEmail(), "x@y"));
+
+    //Then
+    assertThat(found).extracting("nickname", "email")
+        .containsExactly(tuple(runner.getNickname(), runner.getEmail()));
+  }
+
+  @Test
+  public void shouldRejectReservedEmailAsEmailUnique() {
+    //Given
+    Runner runner = buildRunner();
+    runnerEmailsRepository.insertAll(List.of(runner));
+
+    //When && Then
+    assertThatThrownBy(() -> runnerEmailsRepository.insertAll(
+        List.of(runner.toBuilder().nickname("other").build())))
+        .isInstanceOf(DataIntegrityViolationException.class)
+        .hasMessageContaining("EMAIL_UNIQUE");
+  }
+
+  @Test
+  public void shouldRelease() {
+    //Given
+    Runner runner = buildRunner();
+    runnerEmailsRepository.insertAll(List.of(runner));
+
+    //When
+    runnerEmailsRepository.deleteByNicknameIn(List.of(runner.getNickname()));
+
+    //Then
+    assertThat(runnerEmailsRepository.findByEmailIn(List.of(runner.getEmail()))).isEmpty();
+  }
+}
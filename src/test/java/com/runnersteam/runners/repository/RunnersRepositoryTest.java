@@ -2,17 +2,25 @@ package com.runnersteam.runners.repository;
 
 import static com.runnersteam.runners.util.TestData.buildRunner;
 import static java.time.LocalDate.now;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerKey;
+import com.runnersteam.runners.model.RunnerSummary;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @DataJpaTest
@@ -22,6 +30,9 @@ public class RunnersRepositoryTest {
   @Autowired
   private TestEntityManager testEntityManager;
 
+  @Autowired
+  private RunnersRepository runnersRepository;
+
   private Runner runner;
   private static final String THE_NICKNAME = "THENICKNAME";
 
@@ -104,6 +115,41 @@ public class RunnersRepositoryTest {
             created.getSubscriptionDate());
   }
 
+  @Test
+  public void shouldUpdateLastRace() {
+    //Given
+    testEntityManager.persist(runner);
+    testEntityManager.flush();
+    testEntityManager.clear();
+
+    //When
+    int updated = runnersRepository.updateLastRace(THE_NICKNAME, "theRace");
+
+    //Then
+    assertThat(updated).isEqualTo(1);
+    Runner found = testEntityManager.find(Runner.class, THE_NICKNAME);
+    assertThat(found.getLastRace()).isEqualTo("theRace");
+    assertThat(found.getVersion()).isEqualTo(1L);
+  }
+
+  @Test
+  public void shouldUpdateLastRaceOnlyWhenVersionMatches() {
+    //Given
+    testEntityManager.persist(runner);
+    testEntityManager.flush();
+    testEntityManager.clear();
+
+    //When && Then
+    assertThat(runnersRepository.updateLastRace(THE_NICKNAME, "theRace", 1L)).isZero();
+    assertThat(runnersRepository.updateLastRace(THE_NICKNAME, "theRace", 0L)).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldNotUpdateLastRaceWhenNotExist() {
+    //Given && When && Then
+    assertThat(runnersRepository.updateLastRace("unexistentNickname", "theRace")).isZero();
+  }
+
   @Test
   public void shouldDeleteById() {
     //Given
@@ -116,4 +162,167 @@ public class RunnersRepositoryTest {
     assertThat(testEntityManager.find(Runner.class, runner.getNickname())).isNull();
   }
 
+  @Test
+  public void shouldFindByNicknameInOrEmailIn() {
+    //Given
+    Runner byEmail = buildRunner().toBuilder().nickname("byEmail").email("byEmail@email").build();
+    testEntityManager.persist(runner);
+    testEntityManager.persist(byEmail);
+    testEntityManager.persist(buildRunner().toBuilder().nickname("other").email("other@email").build());
+
+    //When
+    List<Runner> found = runnersRepository.findByNicknameInOrEmailIn(
+        List.of(THE_NICKNAME, "unknown"), List.of(byEmail.getEmail()));
+
+    //Then
+    assertThat(found).extracting("nickname").containsExactlyInAnyOrder(THE_NICKNAME, "byEmail");
+  }
+
+  @Test
+  public void shouldInsertFailWhenNicknameExist() {
+    //Given
+    runnersRepository.insert(runner);
+    testEntityManager.clear();
+    Runner withExistingNickname = runner.toBuilder().email("otherEmail@email.com").build();
+
+    //When && Then
+    assertThatThrownBy(() -> runnersRepository.insert(withExistingNickname))
+        .isInstanceOf(DataIntegrityViolationException.class)
+        .satisfies(exception -> assertThat(((DataIntegrityViolationException) exception)
+            .getMostSpecificCause().getMessage().toLowerCase()).contains("primary"));
+  }
+
+  @Test
+  public void shouldInsertFailWhenEmailExist() {
+    //Given
+    runnersRepository.insert(runner);
+    Runner withExistingEmail = runner.toBuilder().nickname("otherNickname").build();
+
+    //When && Then
+    assertThatThrownBy(() -> runnersRepository.insert(withExistingEmail))
+        .isInstanceOf(DataIntegrityViolationException.class)
+        .satisfies(exception -> assertThat(((DataIntegrityViolationException) exception)
+            .getMostSpecificCause().getMessage().toLowerCase()).contains("email_unique"));
+  }
+
+  @Test
+  public void shouldUpdateLastRaces() {
+    //Given
+    testEntityManager.persist(runner);
+    testEntityManager.persist(buildRunner().toBuilder().nickname("other").email("other@email").build());
+    testEntityManager.flush();
+    testEntityManager.clear();
+
+    //When
+    runnersRepository.updateLastRaces(List.of(
+        Runner.builder().nickname(THE_NICKNAME).lastRace("first").build(),
+        Runner.builder().nickname("other").lastRace("second").build(),
+        Runner.builder().nickname("unknown").lastRace("third").build()));
+
+    //Then
+    assertThat(runnersRepository.findAll()).extracting("nickname", "lastRace", "version")
+        .containsExactlyInAnyOrder(tuple(THE_NICKNAME, "first", 1L), tuple("other", "second", 1L));
+  }
+
+  @Test
+  public void shouldAddRaceResultsToAggregates() {
+    //Given
+    testEntityManager.persistAndFlush(runner);
+    runnersRepository.addRaceResults(THE_NICKNAME, 2, 3600, "latest", LocalDate.of(2019, 5, 1));
+
+    //When
+    int updated = runnersRepository.addRaceResults(THE_NICKNAME, 1, 3700, "older",
+        LocalDate.of(2019, 4, 1));
+    testEntityManager.clear();
+
+    //Then
+    assertThat(updated).isEqualTo(1);
+    Runner found = testEntityManager.find(Runner.class, THE_NICKNAME);
+    assertThat(found.getRaceCount()).isEqualTo(3);
+    assertThat(found.getPersonalBestSeconds()).isEqualTo(3600);
+    assertThat(found.getLastRace()).isEqualTo("latest");
+    assertThat(found.getLastRaceDate()).isEqualTo(LocalDate.of(2019, 5, 1));
+    assertThat(found.getVersion()).isEqualTo(2L);
+  }
+
+  @Test
+  public void shouldNotAddRaceResultsWhenNotExist() {
+    //When && Then
+    assertThat(runnersRepository.addRaceResults(THE_NICKNAME, 1, 3600, "race", now())).isZero();
+  }
+
+  @Test
+  public void shouldFindPageAfterNickname() {
+    //Given
+    List.of("a", "b", "c", "d").forEach(nickname -> testEntityManager.persist(buildRunner()
+        .toBuilder().nickname(nickname).email(nickname + "@email").lastRace("race" + nickname).build()));
+
+    //When
+    List<RunnerSummary> page = runnersRepository
+        .findByNicknameGreaterThanOrderByNicknameAsc("a", PageRequest.of(0, 2));
+
+    //Then
+    assertThat(page).extracting("nickname", "name", "lastRace")
+        .containsExactly(tuple("b", "theName", "raceb"), tuple("c", "theName", "racec"));
+  }
+
+  @Test
+  public void shouldStreamAll() {
+    //Given
+    testEntityManager.persist(runner);
+    testEntityManager.persist(buildRunner().toBuilder().nickname("other").email("other@email").build());
+
+    //When
+    List<Runner> streamed;
+    try (Stream<Runner> runners = runnersRepository.streamAll()) {
+      streamed = runners.collect(toList());
+    }
+
+    //Then
+    assertThat(streamed).extracting("nickname").containsExactlyInAnyOrder(THE_NICKNAME, "other");
+  }
+
+  @Test
+  public void shouldStreamKeys() {
+    //Given
+    testEntityManager.persist(runner);
+    testEntityManager.persist(buildRunner().toBuilder().nickname("other").email("other@email").build());
+
+    //When
+    List<RunnerKey> streamed;
+    try (Stream<RunnerKey> keys = runnersRepository.streamKeys()) {
+      streamed = keys.collect(toList());
+    }
+
+    //Then
+    assertThat(streamed).extracting("nickname", "email").containsExactlyInAnyOrder(
+        tuple(THE_NICKNAME, runner.getEmail()), tuple("other", "other@email"));
+  }
+
+  @Test
+  public void shouldFindByEmailIn() {
+    //Given
+    testEntityManager.persist(runner);
+    testEntityManager.persist(buildRunner().toBuilder().nickname("other").email("other@email").build());
+
+    //When
+    List<Runner> found = runnersRepository.findByEmailIn(List.of(runner.getEmail(), "unknown"));
+
+    //Then
+    assertThat(found).extracting("nickname").containsExactly(THE_NICKNAME);
+  }
+
+  @Test
+  public void shouldInsertAll() {
+    //Given
+    Runner other = buildRunner().toBuilder().nickname("other").email("other@email").build();
+
+    //When
+    runnersRepository.insertAll(List.of(runner, other));
+
+    //Then
+    assertThat(testEntityManager.find(Runner.class, THE_NICKNAME)).isNotNull();
+    assertThat(testEntityManager.find(Runner.class, "other").getSubscriptionDate()).isNotNull();
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,193 @@
+package com.runnersteam.runners.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.runnersteam.runners.cache.RunnersCache;
+import com.runnersteam.runners.cache.RunnersExistenceFilter;
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.config.ShardRing;
+import com.runnersteam.runners.model.RaceResult;
+import com.runnersteam.runners.model.RaceResultsReceipt;
+import com.runnersteam.runners.model.RunnerOperation;
+import com.runnersteam.runners.repository.RaceResultsRepository;
+import com.runnersteam.runners.repository.RunnerChangesRepository;
+import com.runnersteam.runners.repository.RunnersRepository;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@ExtendWith(MockitoExtension.class)
+public class RaceResultsServiceTest {
+
+  private static final LocalDate FIRST_DATE = LocalDate.of(2019, 1, 1);
+  private static final LocalDate SECOND_DATE = LocalDate.of(2019, 2, 1);
+
+  @InjectMocks
+  private RaceResultsService raceResultsService;
+
+  @Spy
+  private RunnerShards runnerShards = new RunnerShards();
+
+  @Mock
+  private RunnersRepository runnersRepository;
+
+  @Mock
+  private RaceResultsRepository raceResultsRepository;
+
+  @Mock
+  private RunnersExistenceFilter runnersExistenceFilter;
+
+  @Mock
+  private RunnersCache runnersCache;
+
+  @Mock
+  private RunnerChangesRepository runnerChangesRepository;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @BeforeEach
+  public void setUp() {
+    raceResultsService.init();
+  }
+
+  @AfterEach
+  public void tearDown() {
+    runnerShards.shutdown();
+  }
+
+  @Test
+  public void shouldAddAllFoldingEachRunnerIntoOneUpdate() {
+    //Given
+    RaceResult older = result("runner", "older", SECOND_DATE, 3500);
+    RaceResult latest = result("RUNNER", "latest", SECOND_DATE, 3700);
+    RaceResult first = result("runner", "first", FIRST_DATE, 3600);
+    when(runnersRepository.addRaceResults("runner", 3, 3500, "latest", SECOND_DATE))
+        .thenReturn(1);
+
+    //When
+    RaceResultsReceipt receipt = raceResultsService.addAll(List.of(older, latest, first));
+
+    //Then
+    assertThat(receipt.getAccepted()).isEqualTo(3);
+    assertThat(receipt.getRejected()).isEmpty();
+    verify(raceResultsRepository).insertAll(List.of(older, latest, first));
+    verify(runnerChangesRepository).insertAll(RunnerOperation.UPDATE, List.of("runner"));
+    verify(runnersCache).invalidateAll(List.of("runner"));
+  }
+
+  @Test
+  public void shouldAddAllRejectingInvalidResultsAndUnknownRunners() {
+    //Given
+    RaceResult invalid = result("runner", "race", FIRST_DATE, 0);
+    RaceResult unknown = result("unknown", "race", FIRST_DATE, 3600);
+    RaceResult valid = result("runner", "race", FIRST_DATE, 3600);
+    when(runnersRepository.addRaceResults("unknown", 1, 3600, "race", FIRST_DATE)).thenReturn(0);
+    when(runnersRepository.addRaceResults("runner", 1, 3600, "race", FIRST_DATE)).thenReturn(1);
+
+    //When
+    RaceResultsReceipt receipt = raceResultsService.addAll(List.of(invalid, unknown, valid));
+
+    //Then
+    assertThat(receipt.getAccepted()).isEqualTo(1);
+    assertThat(receipt.getRejected()).extracting("index", "nickname", "reason").containsExactly(
+        tuple(0, "runner", "finishTimeSeconds must be positive"),
+        tuple(1, "unknown", "runner not found"));
+    verify(runnersExistenceFilter, never()).excludesNickname(any());
+    verify(raceResultsRepository).insertAll(List.of(valid));
+  }
+
+  @Test
+  public void shouldReportResultsOfFailedShardAsNotStored() {
+    //Given
+    givenShards(2);
+    String stored = nicknameOnShard(0);
+    String failed = nicknameOnShard(1);
+    RaceResult storedResult = result(stored, "race", FIRST_DATE, 3600);
+    RaceResult failedResult = result(failed, "race", FIRST_DATE, 3600);
+    when(runnersRepository.addRaceResults(stored, 1, 3600, "race", FIRST_DATE)).thenReturn(1);
+    doThrow(new QueryTimeoutException("timeout")).when(runnersRepository)
+        .addRaceResults(eq(failed), anyInt(), anyInt(), any(), any());
+
+    //When
+    RaceResultsReceipt receipt = raceResultsService.addAll(List.of(failedResult, storedResult));
+
+    //Then
+    assertThat(receipt.getAccepted()).isEqualTo(1);
+    assertThat(receipt.getRejected()).extracting("index", "nickname", "reason")
+        .containsExactly(tuple(0, failed, "not stored, retry"));
+    verify(raceResultsRepository).insertAll(List.of(storedResult));
+    verify(runnersCache).invalidateAll(List.of(stored));
+  }
+
+  @Test
+  public void shouldThrowWhenNoShardStored() {
+    //Given
+    doThrow(new QueryTimeoutException("timeout")).when(runnersRepository)
+        .addRaceResults(eq("runner"), anyInt(), anyInt(), any(), any());
+
+    //When && Then
+    assertThatThrownBy(() ->
+        raceResultsService.addAll(List.of(result("runner", "race", FIRST_DATE, 3600))))
+        .isInstanceOf(QueryTimeoutException.class);
+    verify(runnersCache, never()).invalidateAll(any());
+  }
+
+  @Test
+  public void shouldNotFindLatestOfRunnerExcludedByExistenceFilter() {
+    //Given
+    when(runnersExistenceFilter.excludesNickname("unknown")).thenReturn(true);
+
+    //When
+    List<RaceResult> latest = raceResultsService.findLatest("unknown", 10);
+
+    //Then
+    assertThat(latest).isEmpty();
+    verify(raceResultsRepository, never()).findLatestByNickname(any(), anyInt());
+  }
+
+  private void givenShards(int shards) {
+    ReflectionTestUtils.setField(runnerShards, "shardRing", new ShardRing(shards, 160));
+    ReflectionTestUtils.setField(runnerShards, "transactionManager",
+        mock(PlatformTransactionManager.class));
+    ReflectionTestUtils.setField(runnerShards, "scatterThreads", 1);
+    runnerShards.init();
+  }
+
+  private String nicknameOnShard(int shard) {
+    return IntStream.range(0, 1000).mapToObj(i -> "runner" + i)
+        .filter(nickname -> runnerShards.shardOf(nickname) == shard)
+        .findFirst().orElseThrow();
+  }
+
+  private RaceResult result(String nickname, String race, LocalDate raceDate,
+      int finishTimeSeconds) {
+    return RaceResult.builder()
+        .nickname(nickname)
+        .race(race)
+        .raceDate(raceDate)
+        .finishTimeSeconds(finishTimeSeconds)
+        .build();
+  }
+}
@@ -0,0 +1,184 @@
+package com.runnersteam.runners.service;
+
+import static com.runnersteam.runners.util.TestData.buildRunner;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.runnersteam.runners.cache.RunnersCache;
+import com.runnersteam.runners.cache.RunnersExistenceFilter;
+import com.runnersteam.runners.exception.ExistingRunnerException;
+import com.runnersteam.runners.exception.RunnerNotFoundException;
+import com.runnersteam.runners.exception.RunnerVersionMismatchException;
+import com.runnersteam.runners.messaging.RunnerRegistrationOutbox;
+import com.runnersteam.runners.model.OutboxEvent;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerOperation;
+import com.runnersteam.runners.repository.ReactiveRunnersRepository;
+import java.sql.SQLException;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveRunnersServiceTest {
+
+  private static final String THE_NICKNAME = "theNickname";
+
+  @InjectMocks
+  private ReactiveRunnersService reactiveRunnersService;
+
+  @Mock
+  private ReactiveRunnersRepository reactiveRunnersRepository;
+
+  @Mock
+  private RunnerRegistrationOutbox runnerRegistrationOutbox;
+
+  @Mock
+  private RunnersCache runnersCache;
+
+  @Mock
+  private RunnersExistenceFilter runnersExistenceFilter;
+
+  @Mock
+  private TransactionalOperator transactionalOperator;
+
+  @BeforeEach
+  public void setUp() {
+    when(transactionalOperator.transactional(ArgumentMatchers.<Mono<Runner>>any()))
+        .thenAnswer(invocationOnMock -> invocationOnMock.getArgument(0));
+  }
+
+  @Test
+  public void shouldCreate() {
+    //Given
+    OutboxEvent event = OutboxEvent.builder().nickname(THE_NICKNAME).build();
+    when(reactiveRunnersRepository.insert(any())).thenReturn(Mono.empty());
+    when(runnerRegistrationOutbox.toEvent(any())).thenReturn(event);
+    when(reactiveRunnersRepository.insertOutboxEvent(event)).thenReturn(Mono.empty());
+    when(reactiveRunnersRepository.insertChange(RunnerOperation.CREATE, THE_NICKNAME))
+        .thenReturn(Mono.empty());
+
+    //When
+    Runner created = reactiveRunnersService.create(buildRunner()).block();
+
+    //Then
+    ArgumentCaptor<Runner> inserted = ArgumentCaptor.forClass(Runner.class);
+    verify(reactiveRunnersRepository).insert(inserted.capture());
+    assertThat(inserted.getValue()).isEqualTo(created);
+    assertThat(created.getSubscriptionDate()).isNotNull();
+    assertThat(created.getVersion()).isEqualTo(0L);
+    verify(runnersExistenceFilter).put(created);
+    verify(runnersCache).registered(List.of(created));
+  }
+
+  @Test
+  public void shouldCreateFailWhenEmailExists() {
+    //Given
+    when(reactiveRunnersRepository.insert(any())).thenReturn(Mono.error(
+        new DataIntegrityViolationException("duplicate",
+            new SQLException("Unique index or primary key violation: \"EMAIL_UNIQUE\""))));
+
+    //When && Then
+    StepVerifier.create(reactiveRunnersService.create(buildRunner()))
+        .verifyErrorMessage("Runner with email theEmail@email already exists");
+    verify(runnersCache, never()).registered(any());
+  }
+
+  @Test
+  public void shouldCreateFailWhenNicknameExists() {
+    //Given
+    when(reactiveRunnersRepository.insert(any())).thenReturn(Mono.error(
+        new DataIntegrityViolationException("duplicate",
+            new SQLException("Unique index or primary key violation: \"PRIMARY_KEY_A\""))));
+
+    //When && Then
+    StepVerifier.create(reactiveRunnersService.create(buildRunner()))
+        .verifyError(ExistingRunnerException.class);
+  }
+
+  @Test
+  public void shouldUpdate() {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("newRace").version(2L).build();
+    Runner updated = runner.toBuilder().version(3L).build();
+    when(reactiveRunnersRepository.updateLastRace(THE_NICKNAME, "newRace", 2L))
+        .thenReturn(Mono.just(1));
+    when(reactiveRunnersRepository.insertChange(RunnerOperation.UPDATE, THE_NICKNAME))
+        .thenReturn(Mono.empty());
+    when(reactiveRunnersRepository.findById(THE_NICKNAME)).thenReturn(Mono.just(updated));
+
+    //When && Then
+    StepVerifier.create(reactiveRunnersService.update(runner))
+        .expectNext(updated)
+        .verifyComplete();
+    verify(runnersCache).invalidate(THE_NICKNAME);
+    verify(reactiveRunnersRepository).insertChange(RunnerOperation.UPDATE, THE_NICKNAME);
+  }
+
+  @Test
+  public void shouldDeleteByNicknameAndRecordChange() {
+    //Given
+    when(reactiveRunnersRepository.deleteById(THE_NICKNAME)).thenReturn(Mono.empty());
+    when(reactiveRunnersRepository.insertChange(RunnerOperation.DELETE, THE_NICKNAME))
+        .thenReturn(Mono.empty());
+
+    //When && Then
+    StepVerifier.create(reactiveRunnersService.deleteByNickName(THE_NICKNAME))
+        .verifyComplete();
+    verify(reactiveRunnersRepository).insertChange(RunnerOperation.DELETE, THE_NICKNAME);
+    verify(runnersCache).invalidate(THE_NICKNAME);
+  }
+
+  @Test
+  public void shouldUpdateLastRaceFailWhenVersionMismatch() {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("newRace").version(2L).build();
+    when(reactiveRunnersRepository.updateLastRace(THE_NICKNAME, "newRace", 2L))
+        .thenReturn(Mono.just(0));
+    when(reactiveRunnersRepository.existsById(THE_NICKNAME)).thenReturn(Mono.just(true));
+
+    //When && Then
+    StepVerifier.create(reactiveRunnersService.updateLastRace(runner))
+        .verifyError(RunnerVersionMismatchException.class);
+    verify(runnersCache, never()).invalidate(any());
+  }
+
+  @Test
+  public void shouldUpdateLastRaceFailWhenNotFound() {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("newRace").build();
+    when(reactiveRunnersRepository.updateLastRace(THE_NICKNAME, "newRace"))
+        .thenReturn(Mono.just(0));
+
+    //When && Then
+    StepVerifier.create(reactiveRunnersService.updateLastRace(runner))
+        .verifyError(RunnerNotFoundException.class);
+  }
+
+  @Test
+  public void shouldUpdateLastRaceWithoutConsultingExistenceFilter() {
+    //Given
+    Runner runner = buildRunner().toBuilder().lastRace("newRace").build();
+    when(reactiveRunnersRepository.updateLastRace(THE_NICKNAME, "newRace"))
+        .thenReturn(Mono.just(1));
+    when(reactiveRunnersRepository.insertChange(RunnerOperation.UPDATE, THE_NICKNAME))
+        .thenReturn(Mono.empty());
+
+    //When && Then
+    StepVerifier.create(reactiveRunnersService.updateLastRace(runner)).verifyComplete();
+    verify(runnersExistenceFilter, never()).excludesNickname(any());
+  }
+}
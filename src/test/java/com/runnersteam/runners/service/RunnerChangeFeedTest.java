@@ -0,0 +1,136 @@
+package com.runnersteam.runners.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.RunnerChange;
+import com.runnersteam.runners.model.RunnerChangesPage;
+import com.runnersteam.runners.model.RunnerOperation;
+import com.runnersteam.runners.repository.RunnerChangesRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+@ExtendWith(MockitoExtension.class)
+public class RunnerChangeFeedTest {
+
+  @InjectMocks
+  private RunnerChangeFeed runnerChangeFeed;
+
+  @Spy
+  private RunnerShards runnerShards = new RunnerShards();
+
+  @Mock
+  private RunnerChangesRepository runnerChangesRepository;
+
+  @BeforeEach
+  public void setUp() {
+    ReflectionTestUtils.setField(runnerChangeFeed, "settle", Duration.ofSeconds(1));
+  }
+
+  @Test
+  public void shouldStopAtRecentGap() {
+    //Given
+    Instant now = Instant.now();
+    when(runnerChangesRepository.findAfter(3, 100))
+        .thenReturn(List.of(change(4, now), change(5, now), change(7, now)));
+
+    //When
+    RunnerChangesPage page = runnerChangeFeed.changesSince(0, 3, 100);
+
+    //Then
+    assertThat(page.getChanges()).extracting("sequence").containsExactly(4L, 5L);
+    assertThat(page.getNext()).isEqualTo(5);
+  }
+
+  @Test
+  public void shouldSkipSettledGap() {
+    //Given
+    Instant old = Instant.now().minusSeconds(10);
+    when(runnerChangesRepository.findAfter(3, 100))
+        .thenReturn(List.of(change(5, old), change(6, Instant.now())));
+
+    //When
+    RunnerChangesPage page = runnerChangeFeed.changesSince(0, 3, 100);
+
+    //Then
+    assertThat(page.getChanges()).extracting("sequence").containsExactly(5L, 6L);
+    assertThat(page.getNext()).isEqualTo(6);
+  }
+
+  @Test
+  public void shouldCapPageSize() {
+    //Given
+    when(runnerChangesRepository.findAfter(0, 1000)).thenReturn(List.of());
+
+    //When
+    RunnerChangesPage page = runnerChangeFeed.changesSince(0, 0, 5000);
+
+    //Then
+    assertThat(page.getChanges()).isEmpty();
+    assertThat(page.getNext()).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldAnswerPollWithoutWaitRightAway() {
+    //Given
+    when(runnerChangesRepository.findAfter(3, 100)).thenReturn(List.of());
+
+    //When
+    DeferredResult<RunnerChangesPage> result = runnerChangeFeed.poll(0, 3, 100, 0);
+
+    //Then
+    assertThat(result.hasResult()).isTrue();
+    assertThat(((RunnerChangesPage) result.getResult()).getNext()).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldCompleteWaitingPollOnPublish() {
+    //Given
+    Instant now = Instant.now();
+    when(runnerChangesRepository.findAfter(3, 100))
+        .thenReturn(List.of())
+        .thenReturn(List.of(change(4, now)));
+    when(runnerChangesRepository.findLatestSequence()).thenReturn(4L);
+    DeferredResult<RunnerChangesPage> result = runnerChangeFeed.poll(0, 3, 100, 1000);
+
+    //When
+    assertThat(result.hasResult()).isFalse();
+    runnerChangeFeed.publish();
+
+    //Then
+    assertThat(result.hasResult()).isTrue();
+    assertThat(((RunnerChangesPage) result.getResult()).getChanges())
+        .extracting("sequence").containsExactly(4L);
+  }
+
+  @Test
+  public void shouldNotQueryOnPublishWithoutWaiters() {
+    //When
+    runnerChangeFeed.publish();
+
+    //Then
+    verify(runnerChangesRepository, never()).findLatestSequence();
+  }
+
+  private RunnerChange change(long sequence, Instant changedAt) {
+    return RunnerChange.builder()
+        .sequence(sequence)
+        .nickname("theNickname")
+        .operation(RunnerOperation.UPDATE)
+        .changedAt(changedAt)
+        .build();
+  }
+}
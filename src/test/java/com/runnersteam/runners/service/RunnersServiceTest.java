@@ -1,31 +1,68 @@
 package com.runnersteam.runners.service;
 
+import static com.runnersteam.runners.model.RunnerCreationStatus.CREATED;
+import static com.runnersteam.runners.model.RunnerCreationStatus.DUPLICATE_EMAIL;
+import static com.runnersteam.runners.model.RunnerCreationStatus.DUPLICATE_NICKNAME;
 import static com.runnersteam.runners.util.TestData.buildRunner;
 import static java.time.LocalDate.now;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.runnersteam.runners.cache.LastRaceWriteBuffer;
+import com.runnersteam.runners.cache.RunnersCache;
+import com.runnersteam.runners.cache.RunnersExistenceFilter;
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.config.ShardRing;
 import com.runnersteam.runners.exception.ExistingRunnerException;
 import com.runnersteam.runners.exception.RunnerNotFoundException;
-import com.runnersteam.runners.messaging.RunnerBinding;
+import com.runnersteam.runners.exception.RunnerVersionMismatchException;
+import com.runnersteam.runners.messaging.RunnerRegistrationOutbox;
 import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerCreationResult;
+import com.runnersteam.runners.model.RunnerOperation;
+import com.runnersteam.runners.model.RunnerSummary;
+import com.runnersteam.runners.model.RunnersLookup;
+import com.runnersteam.runners.model.RunnersPage;
+import com.runnersteam.runners.repository.RunnerChangesRepository;
+import com.runnersteam.runners.repository.RunnerEmailsRepository;
 import com.runnersteam.runners.repository.RunnersRepository;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.messaging.Message;
-import org.springframework.messaging.MessageChannel;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @ExtendWith(MockitoExtension.class)
 public class RunnersServiceTest {
@@ -35,18 +72,45 @@ public class RunnersServiceTest {
   @InjectMocks
   private RunnersService runnersService;
 
+  @Spy
+  private RunnerShards runnerShards = new RunnerShards();
+
   @Mock
   private RunnersRepository runnersRepository;
 
   @Mock
-  private MessageChannel newRunnerRegistrationOutput;
+  private RunnerRegistrationOutbox runnerRegistrationOutbox;
+
+  @Mock
+  private RunnersCache runnersCache;
+
+  @Mock
+  private RunnersExistenceFilter runnersExistenceFilter;
+
+  @Mock
+  private LastRaceWriteBuffer lastRaceWriteBuffer;
+
+  @Mock
+  private RunnerChangesRepository runnerChangesRepository;
+
+  @Mock
+  private RunnerEmailsRepository runnerEmailsRepository;
+
+  @Mock
+  private EntityManager entityManager;
 
   @Mock
   private Runner runner;
 
+  @AfterEach
+  public void tearDown() {
+    runnerShards.shutdown();
+  }
+
   @Test
   public void shouldFindByNickname() {
     //Given
+    givenCacheMiss();
     when(runnersRepository.findById(THE_NICKNAME)).thenReturn(of(runner));
 
     //When
@@ -61,6 +125,7 @@ public class RunnersServiceTest {
   @Test
   public void shouldNotFindByNickname() {
     //Given
+    givenCacheMiss();
     when(runnersRepository.findById(THE_NICKNAME)).thenReturn(empty());
 
     //When
@@ -71,39 +136,255 @@ public class RunnersServiceTest {
     verify(runnersRepository).findById(THE_NICKNAME);
   }
 
+  @Test
+  public void shouldFindByNicknameFromCache() {
+    //Given
+    when(runnersCache.get(eq(THE_NICKNAME), any())).thenReturn(of(runner));
+
+    //When
+    Optional<Runner> found = runnersService.findByNickname(THE_NICKNAME);
+
+    //Then
+    assertThat(found).isPresent();
+    verify(runnersRepository, never()).findById(THE_NICKNAME);
+  }
+
+  @Test
+  public void shouldNotFindByNicknameExcludedByExistenceFilter() {
+    //Given
+    when(runnersExistenceFilter.excludesNickname(THE_NICKNAME)).thenReturn(true);
+
+    //When
+    Optional<Runner> found = runnersService.findByNickname(THE_NICKNAME);
+
+    //Then
+    assertThat(found).isEmpty();
+    verify(runnersCache, never()).get(any(), any());
+    verify(runnersRepository, never()).findById(any());
+  }
+
+  @Test
+  public void shouldFindAllByNicknameInRequestOrder() {
+    //Given
+    Runner first = buildRunner().toBuilder().nickname("first").build();
+    Runner second = buildRunner().toBuilder().nickname("second").build();
+    when(runnersExistenceFilter.excludesNickname(any()))
+        .thenAnswer(invocation -> "excluded".equals(invocation.getArgument(0)));
+    loadThroughCache(List.of("second", "unknown", "FIRST"));
+    when(runnersRepository.findAllById(List.of("second", "unknown", "FIRST")))
+        .thenReturn(List.of(first, second));
+
+    //When
+    RunnersLookup lookup = runnersService.findAllByNickname(
+        List.of("second", "excluded", "unknown", "FIRST", "second"));
+
+    //Then
+    assertThat(lookup.getRunners()).containsExactly(second, first);
+    assertThat(lookup.getMissing()).containsExactly("excluded", "unknown");
+  }
+
+  @Test
+  public void shouldFindAllByNicknameInChunks() {
+    //Given
+    List<String> nicknames = IntStream.range(0, 501).mapToObj(index -> "runner" + index)
+        .collect(toList());
+    loadThroughCache(nicknames);
+
+    //When
+    RunnersLookup lookup = runnersService.findAllByNickname(nicknames);
+
+    //Then
+    assertThat(lookup.getMissing()).isEqualTo(nicknames);
+    verify(runnersRepository).findAllById(nicknames.subList(0, 500));
+    verify(runnersRepository).findAllById(nicknames.subList(500, 501));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void loadThroughCache(List<String> nicknames) {
+    when(runnersCache.getAll(eq(nicknames), any())).thenAnswer(invocation ->
+        invocation.<Function<Set<String>, Map<String, Optional<Runner>>>>getArgument(1)
+            .apply(new LinkedHashSet<>(nicknames)));
+  }
+
   @Test
   public void shouldCreate() {
     //Given
-    when(runnersRepository.findById(THE_NICKNAME)).thenReturn(empty());
     when(runner.getNickname()).thenReturn(THE_NICKNAME);
-    when(runnersRepository.save(runner)).thenReturn(runner);
 
     //When
     Runner created = runnersService.create(runner);
 
     //Then
     assertThat(created).isNotNull();
-    InOrder inOrder = inOrder(runnersRepository, runner, newRunnerRegistrationOutput);
-    inOrder.verify(runner).getNickname();
-    inOrder.verify(runnersRepository).findById(THE_NICKNAME);
-    inOrder.verify(newRunnerRegistrationOutput).send(any(Message.class));
-    inOrder.verify(runnersRepository).save(runner);
+    InOrder inOrder = inOrder(runnersExistenceFilter, runnersRepository, runnerRegistrationOutbox,
+        runnersCache);
+    inOrder.verify(runnersExistenceFilter).put(runner);
+    inOrder.verify(runnersRepository).insert(runner);
+    inOrder.verify(runnerRegistrationOutbox).add(runner);
+    inOrder.verify(runnersCache).registered(List.of(runner));
+    verify(runnerChangesRepository).insertAll(RunnerOperation.CREATE, List.of(THE_NICKNAME));
+    verify(runnersRepository, never()).findById(any());
+  }
+
+  @Test
+  public void shouldCreateAllReportingDuplicates() {
+    //Given
+    Runner existing = buildRunner();
+    Runner fresh = buildRunner().toBuilder().nickname("fresh").email("fresh@email").build();
+    Runner duplicateNickname = buildRunner().toBuilder()
+        .nickname(existing.getNickname().toUpperCase()).email("other@email").build();
+    Runner duplicateEmail = buildRunner().toBuilder().nickname("other").build();
+    Runner duplicateInBatch = fresh.toBuilder().email("another@email").build();
+    List<Runner> runners = List.of(fresh, duplicateNickname, duplicateEmail, duplicateInBatch);
+    when(runnersRepository.findByNicknameInOrEmailIn(any(), any())).thenReturn(List.of(existing));
+
+    //When
+    List<RunnerCreationResult> results = runnersService.createAll(runners);
+
+    //Then
+    assertThat(results).extracting("nickname", "status").containsExactly(
+        tuple(fresh.getNickname(), CREATED),
+        tuple(duplicateNickname.getNickname(), DUPLICATE_NICKNAME),
+        tuple(duplicateEmail.getNickname(), DUPLICATE_EMAIL),
+        tuple(duplicateInBatch.getNickname(), DUPLICATE_NICKNAME));
+    verify(runnersExistenceFilter).put(fresh);
+    verify(runnersRepository).insertAll(List.of(fresh));
+    verify(runnerRegistrationOutbox).addAll(List.of(fresh));
+    verify(runnerChangesRepository).insertAll(RunnerOperation.CREATE,
+        List.of(fresh.getNickname()));
+    verify(runnersCache).registered(List.of(fresh));
+  }
+
+  @Test
+  public void shouldCreateAllWithoutLookupWhenExistenceFilterExcludesAll() {
+    //Given
+    Runner fresh = buildRunner();
+    when(runnersExistenceFilter.excludesNickname(fresh.getNickname())).thenReturn(true);
+    when(runnersExistenceFilter.excludesEmail(fresh.getEmail())).thenReturn(true);
+
+    //When
+    List<RunnerCreationResult> results = runnersService.createAll(List.of(fresh));
+
+    //Then
+    assertThat(results).extracting("status").containsExactly(CREATED);
+    verify(runnersRepository, never()).findByNicknameInOrEmailIn(any(), any());
+    verify(runnersRepository, never()).findByEmailIn(any());
+    verify(runnersRepository, never()).findAllById(any());
+    verify(runnersRepository).insertAll(List.of(fresh));
+  }
+
+  @Test
+  public void shouldCreateAllLookingUpOnlyKeysNotExcluded() {
+    //Given
+    Runner fresh = buildRunner();
+    when(runnersExistenceFilter.excludesNickname(fresh.getNickname())).thenReturn(true);
+    when(runnersExistenceFilter.excludesEmail(fresh.getEmail())).thenReturn(false);
+    when(runnersRepository.findByEmailIn(Set.of(fresh.getEmail())))
+        .thenReturn(List.of(fresh.toBuilder().nickname("other").build()));
+
+    //When
+    List<RunnerCreationResult> results = runnersService.createAll(List.of(fresh));
+
+    //Then
+    assertThat(results).extracting("status").containsExactly(DUPLICATE_EMAIL);
+    verify(runnersRepository).insertAll(List.of());
   }
 
   @Test
   public void shouldCreateFailWhenExist() {
     //Given
-    when(runnersRepository.findById(THE_NICKNAME)).thenReturn(of(runner));
     when(runner.getNickname()).thenReturn(THE_NICKNAME);
+    doThrow(new DataIntegrityViolationException("Unique index or primary key violation: "
+        + "PRIMARY KEY ON PUBLIC.RUNNERS(NICKNAME)")).when(runnersRepository).insert(runner);
 
     //When && Then
     assertThatThrownBy(() -> runnersService.create(runner))
-        .hasMessage("Runner with " + runner.getNickname() + " already exists")
+        .hasMessage("Runner with " + THE_NICKNAME + " already exists")
         .isInstanceOf(ExistingRunnerException.class);
-    InOrder inOrder = inOrder(runnersRepository, runner);
-    inOrder.verify(runner).getNickname();
-    inOrder.verify(runnersRepository).findById(THE_NICKNAME);
-    verify(runnersRepository, never()).save(runner);
+    verify(runnerRegistrationOutbox, never()).add(runner);
+  }
+
+  @Test
+  public void shouldCreateFailWhenEmailExist() {
+    //Given
+    when(runner.getEmail()).thenReturn("theEmail@email");
+    doThrow(new DataIntegrityViolationException("Duplicate entry 'theEmail@email' for key "
+        + "'email_unique'")).when(runnersRepository).insert(runner);
+
+    //When && Then
+    assertThatThrownBy(() -> runnersService.create(runner))
+        .hasMessage("Runner with email theEmail@email already exists")
+        .isInstanceOf(ExistingRunnerException.class);
+    verify(runnerRegistrationOutbox, never()).add(runner);
+  }
+
+  @Test
+  public void shouldClassifyDuplicatesByConstraintNameOnly() {
+    //Given
+    Runner fresh = buildRunner().toBuilder().nickname("primary").email("email_unique@mail.com")
+        .build();
+    DataIntegrityViolationException mysqlNickname = new DataIntegrityViolationException(
+        "Duplicate entry 'email_unique@mail.com' for key 'runners.PRIMARY'");
+    DataIntegrityViolationException h2Email = new DataIntegrityViolationException("duplicate",
+        new SQLException("Unique index or primary key violation: "
+            + "\"PUBLIC.EMAIL_UNIQUE_INDEX_A ON PUBLIC.RUNNERS(EMAIL) VALUES ('primary', 1)\""));
+    DataIntegrityViolationException hibernateNickname = new DataIntegrityViolationException(
+        "duplicate", new ConstraintViolationException("duplicate",
+            new SQLException("Duplicate entry 'email_unique' for key 'PRIMARY'"), "PRIMARY"));
+    DataIntegrityViolationException other = new DataIntegrityViolationException(
+        "Duplicate entry 'email_unique primary' for key 'other_unique'");
+
+    //When && Then
+    assertThat(RunnersService.toExistingRunnerException(fresh, mysqlNickname))
+        .hasMessage("Runner with primary already exists");
+    assertThat(RunnersService.toExistingRunnerException(fresh, h2Email))
+        .hasMessage("Runner with email email_unique@mail.com already exists");
+    assertThat(RunnersService.toExistingRunnerException(fresh, hibernateNickname))
+        .hasMessage("Runner with primary already exists");
+    assertThat(RunnersService.toExistingRunnerException(fresh, other)).isSameAs(other);
+  }
+
+  @Test
+  public void shouldCreateFailWhenEmailReservedOnAnotherShard() {
+    //Given
+    givenShards(2);
+    Runner fresh = buildRunner();
+    doThrow(new DataIntegrityViolationException("Duplicate entry 'theEmail@email' for key "
+        + "'runner_emails_email_unique'")).when(runnerEmailsRepository).insertAll(List.of(fresh));
+
+    //When && Then
+    assertThatThrownBy(() -> runnersService.create(fresh))
+        .hasMessage("Runner with email theEmail@email already exists")
+        .isInstanceOf(ExistingRunnerException.class);
+    verify(runnersRepository, never()).insert(any());
+    verify(runnerEmailsRepository, never()).deleteByNicknameIn(any());
+  }
+
+  @Test
+  public void shouldCreateReleaseReservedEmailWhenShardInsertFails() {
+    //Given
+    givenShards(2);
+    Runner fresh = buildRunner();
+    DataIntegrityViolationException notNullViolation =
+        new DataIntegrityViolationException("NULL not allowed for column \"SURNAME\"");
+    doThrow(notNullViolation).when(runnersRepository).insert(fresh);
+
+    //When && Then
+    assertThatThrownBy(() -> runnersService.create(fresh)).isSameAs(notNullViolation);
+    verify(runnerEmailsRepository).insertAll(List.of(fresh));
+    verify(runnerEmailsRepository).deleteByNicknameIn(List.of(fresh.getNickname()));
+  }
+
+  @Test
+  public void shouldCreateFailWhenOtherIntegrityViolation() {
+    //Given
+    DataIntegrityViolationException notNullViolation =
+        new DataIntegrityViolationException("NULL not allowed for column \"SURNAME\"");
+    doThrow(notNullViolation).when(runnersRepository).insert(runner);
+
+    //When && Then
+    assertThatThrownBy(() -> runnersService.create(runner)).isSameAs(notNullViolation);
+    verify(runnerRegistrationOutbox, never()).add(runner);
   }
 
   @Test
@@ -112,12 +393,13 @@ public class RunnersServiceTest {
     Runner current = buildRunner();
     current.setSubscriptionDate(now());
     current.setNickname(THE_NICKNAME);
-    when(runnersRepository.findById(THE_NICKNAME)).thenReturn(of(current));
-    when(runnersRepository.save(any(Runner.class)))
-        .thenAnswer(invocationOnMock -> invocationOnMock.getArgument(0));
     String theLastRace = "theLastRace";
     Runner toUpdate = current.toBuilder()
         .lastRace(theLastRace).email("fakemail@email.com").build();
+    when(runnersCache.getIfPresent(THE_NICKNAME)).thenReturn(empty());
+    when(runnersRepository.updateLastRace(THE_NICKNAME, theLastRace)).thenReturn(1);
+    when(runnersRepository.findById(THE_NICKNAME))
+        .thenReturn(of(current.toBuilder().lastRace(theLastRace).build()));
 
     //When
     Runner updated = runnersService.update(toUpdate);
@@ -125,26 +407,255 @@ public class RunnersServiceTest {
     //Then
     assertThat(updated).extracting("nickname", "name", "surname",
         "email", "birthDate", "lastRace", "subscriptionDate")
-        .contains(current.getNickname(), current.getName(), current.getSurname(),
-            current.getEmail(), toUpdate.getLastRace(), current.getSubscriptionDate());
-    InOrder inOrder = inOrder(runnersRepository);
+        .containsExactly(current.getNickname(), current.getName(), current.getSurname(),
+            current.getEmail(), current.getBirthDate(), theLastRace, current.getSubscriptionDate());
+    InOrder inOrder = inOrder(runnersRepository, runnersCache);
+    inOrder.verify(runnersRepository).updateLastRace(THE_NICKNAME, theLastRace);
+    inOrder.verify(runnersCache).invalidate(THE_NICKNAME);
     inOrder.verify(runnersRepository).findById(THE_NICKNAME);
-    inOrder.verify(runnersRepository).save(any(Runner.class));
+    verify(runnersRepository, never()).save(any(Runner.class));
+    verify(runnerChangesRepository).insertAll(RunnerOperation.UPDATE, List.of(THE_NICKNAME));
+  }
 
+  @Test
+  public void shouldUpdateFromCachedRunnerWithoutSelect() {
+    //Given
+    Runner current = buildRunner().toBuilder().nickname(THE_NICKNAME).build();
+    Runner toUpdate = current.toBuilder().lastRace("theLastRace").email("fakemail@email.com").build();
+    when(runnersCache.getIfPresent(THE_NICKNAME)).thenReturn(of(current));
+    when(runnersRepository.updateLastRace(THE_NICKNAME, "theLastRace")).thenReturn(1);
+
+    //When
+    Runner updated = runnersService.update(toUpdate);
+
+    //Then
+    assertThat(updated.getLastRace()).isEqualTo("theLastRace");
+    assertThat(updated.getEmail()).isEqualTo(current.getEmail());
+    verify(runnersRepository, never()).findById(any());
   }
 
   @Test
   public void shouldUpdateFailWhenNotExist() {
     //Given
     when(runner.getNickname()).thenReturn(THE_NICKNAME);
-    when(runnersRepository.findById(THE_NICKNAME)).thenReturn(empty());
+    when(runner.getVersion()).thenReturn(null);
+    when(runnersRepository.updateLastRace(THE_NICKNAME, null)).thenReturn(0);
 
     //When && Then
     assertThatThrownBy(() -> runnersService.update(runner))
         .isInstanceOf(RunnerNotFoundException.class)
         .hasMessage("Runner with nickname " + THE_NICKNAME + " does not exist");
-    verify(runnersRepository).findById(THE_NICKNAME);
-    verify(runnersRepository, never()).save(runner);
+    verify(runnersRepository).updateLastRace(THE_NICKNAME, null);
+    verify(runnersCache, never()).invalidate(THE_NICKNAME);
+  }
+
+  @Test
+  public void shouldUpdateWhenVersionMatches() {
+    //Given
+    Runner current = buildRunner().toBuilder().nickname(THE_NICKNAME).version(3L).build();
+    Runner toUpdate = current.toBuilder().lastRace("theLastRace").build();
+    when(runnersCache.getIfPresent(THE_NICKNAME)).thenReturn(of(current));
+    when(runnersRepository.updateLastRace(THE_NICKNAME, "theLastRace", 3L)).thenReturn(1);
+
+    //When
+    Runner updated = runnersService.update(toUpdate);
+
+    //Then
+    assertThat(updated.getVersion()).isEqualTo(4L);
+    assertThat(updated.getLastRace()).isEqualTo("theLastRace");
+  }
+
+  @Test
+  public void shouldReloadWhenCachedVersionIsNotTheExpectedOne() {
+    //Given
+    Runner current = buildRunner().toBuilder().nickname(THE_NICKNAME).version(3L).build();
+    Runner toUpdate = Runner.builder().nickname(THE_NICKNAME).lastRace("theLastRace").version(7L)
+        .build();
+    when(runnersCache.getIfPresent(THE_NICKNAME)).thenReturn(of(current));
+    when(runnersRepository.updateLastRace(THE_NICKNAME, "theLastRace", 7L)).thenReturn(1);
+    when(runnersRepository.findById(THE_NICKNAME))
+        .thenReturn(of(current.toBuilder().lastRace("theLastRace").version(8L).build()));
+
+    //When
+    Runner updated = runnersService.update(toUpdate);
+
+    //Then
+    assertThat(updated.getVersion()).isEqualTo(8L);
+  }
+
+  @Test
+  public void shouldReturnCachedVersionIncrementedOnUnconditionalUpdate() {
+    //Given
+    Runner current = buildRunner().toBuilder().nickname(THE_NICKNAME).version(3L).build();
+    Runner toUpdate = Runner.builder().nickname(THE_NICKNAME).lastRace("theLastRace").build();
+    when(runnersCache.getIfPresent(THE_NICKNAME)).thenReturn(of(current));
+    when(runnersRepository.updateLastRace(THE_NICKNAME, "theLastRace")).thenReturn(1);
+
+    //When
+    Runner updated = runnersService.update(toUpdate);
+
+    //Then
+    assertThat(updated.getVersion()).isEqualTo(4L);
+    verify(runnersRepository, never()).findById(any());
+  }
+
+  @Test
+  public void shouldUpdateFailWhenVersionMismatch() {
+    //Given
+    Runner toUpdate = buildRunner().toBuilder().nickname(THE_NICKNAME).version(3L).build();
+    when(runnersRepository.updateLastRace(THE_NICKNAME, null, 3L)).thenReturn(0);
+    when(runnersRepository.existsById(THE_NICKNAME)).thenReturn(true);
+
+    //When && Then
+    assertThatThrownBy(() -> runnersService.updateLastRace(toUpdate))
+        .isInstanceOf(RunnerVersionMismatchException.class)
+        .hasMessage("Runner with nickname " + THE_NICKNAME + " is not at version 3");
+    verify(runnersCache, never()).invalidate(THE_NICKNAME);
+  }
+
+  @Test
+  public void shouldUpdateLastRaceWithoutConsultingExistenceFilter() {
+    //Given
+    Runner toUpdate = buildRunner().toBuilder().nickname(THE_NICKNAME).version(null).build();
+    when(runnersRepository.updateLastRace(THE_NICKNAME, toUpdate.getLastRace())).thenReturn(1);
+
+    //When
+    runnersService.updateLastRace(toUpdate);
+
+    //Then
+    verify(runnersExistenceFilter, never()).excludesNickname(any());
+  }
+
+  @Test
+  public void shouldBufferUnconditionalUpdateInWriteBehindMode() {
+    //Given
+    Runner current = buildRunner().toBuilder().nickname(THE_NICKNAME).version(3L).build();
+    Runner toUpdate = Runner.builder().nickname(THE_NICKNAME).lastRace("newRace").build();
+    when(lastRaceWriteBuffer.isEnabled()).thenReturn(true);
+    when(runnersCache.get(eq(THE_NICKNAME), any())).thenReturn(of(current));
+    when(lastRaceWriteBuffer.offer(toUpdate)).thenReturn(true);
+
+    //When
+    Runner updated = runnersService.update(toUpdate);
+
+    //Then
+    assertThat(updated.getLastRace()).isEqualTo("newRace");
+    assertThat(updated.getVersion()).isNull();
+    verify(runnersRepository, never()).updateLastRace(any(), any());
+    verify(runnersCache, never()).invalidate(any());
+  }
+
+  @Test
+  public void shouldWriteUnconditionalUpdateRightAwayWhenBufferFull() {
+    //Given
+    Runner current = buildRunner().toBuilder().nickname(THE_NICKNAME).version(3L).build();
+    Runner toUpdate = Runner.builder().nickname(THE_NICKNAME).lastRace("newRace").build();
+    when(lastRaceWriteBuffer.isEnabled()).thenReturn(true);
+    when(runnersCache.get(eq(THE_NICKNAME), any())).thenReturn(of(current));
+    when(lastRaceWriteBuffer.offer(toUpdate)).thenReturn(false);
+    when(runnersRepository.updateLastRace(THE_NICKNAME, "newRace")).thenReturn(1);
+
+    //When
+    runnersService.updateLastRace(toUpdate);
+
+    //Then
+    verify(runnersRepository).updateLastRace(THE_NICKNAME, "newRace");
+    verify(runnersCache).invalidate(THE_NICKNAME);
+  }
+
+  @Test
+  public void shouldFindByNicknameWithPendingLastRace() {
+    //Given
+    Runner cached = buildRunner().toBuilder().nickname(THE_NICKNAME).version(3L).build();
+    when(runnersCache.get(eq(THE_NICKNAME), any())).thenReturn(of(cached));
+    when(lastRaceWriteBuffer.pending(THE_NICKNAME))
+        .thenReturn(of(Runner.builder().nickname(THE_NICKNAME).lastRace("pendingRace").build()));
+
+    //When
+    Optional<Runner> found = runnersService.findByNickname(THE_NICKNAME);
+
+    //Then
+    assertThat(found).contains(cached.toBuilder().lastRace("pendingRace").version(null).build());
+  }
+
+  @Test
+  public void shouldWritePendingLastRaceBeforeConditionalUpdate() {
+    //Given
+    Runner toUpdate = buildRunner().toBuilder().nickname(THE_NICKNAME).version(3L).build();
+    when(lastRaceWriteBuffer.discard(THE_NICKNAME))
+        .thenReturn(of(Runner.builder().nickname(THE_NICKNAME).lastRace("pendingRace").build()));
+    when(runnersRepository.updateLastRace(THE_NICKNAME, "pendingRace")).thenReturn(1);
+    when(runnersRepository.updateLastRace(THE_NICKNAME, toUpdate.getLastRace(), 3L)).thenReturn(1);
+
+    //When
+    runnersService.updateLastRace(toUpdate);
+
+    //Then
+    InOrder inOrder = inOrder(runnersRepository);
+    inOrder.verify(runnersRepository).updateLastRace(THE_NICKNAME, "pendingRace");
+    inOrder.verify(runnersRepository).updateLastRace(THE_NICKNAME, toUpdate.getLastRace(), 3L);
+  }
+
+  @Test
+  public void shouldUpdateLastRace() {
+    //Given
+    when(runner.getNickname()).thenReturn(THE_NICKNAME);
+    when(runner.getLastRace()).thenReturn("theLastRace");
+    when(runner.getVersion()).thenReturn(null);
+    when(runnersRepository.updateLastRace(THE_NICKNAME, "theLastRace")).thenReturn(1);
+
+    //When
+    runnersService.updateLastRace(runner);
+
+    //Then
+    verify(runnersCache).invalidate(THE_NICKNAME);
+    verify(runnersRepository, never()).findById(any());
+  }
+
+  @Test
+  public void shouldListWithNextCursorWhenPageIsFull() {
+    //Given
+    RunnerSummary first = summary("a");
+    RunnerSummary second = summary("b");
+    when(runnersRepository.findByNicknameGreaterThanOrderByNicknameAsc("", PageRequest.of(0, 2)))
+        .thenReturn(List.of(first, second));
+
+    //When
+    RunnersPage page = runnersService.list("", 2);
+
+    //Then
+    assertThat(page.getRunners()).containsExactly(first, second);
+    assertThat(page.getNext()).isEqualTo("b");
+  }
+
+  @Test
+  public void shouldListLastPageWithoutNextCursor() {
+    //Given
+    when(runnersRepository.findByNicknameGreaterThanOrderByNicknameAsc("b", PageRequest.of(0, 1000)))
+        .thenReturn(List.of(summary("c")));
+
+    //When
+    RunnersPage page = runnersService.list("b", 5000);
+
+    //Then
+    assertThat(page.getRunners()).hasSize(1);
+    assertThat(page.getNext()).isNull();
+  }
+
+  @Test
+  public void shouldExportDetachingEachRunner() {
+    //Given
+    Runner other = buildRunner();
+    when(runnersRepository.streamAll()).thenReturn(Stream.of(runner, other));
+    List<Runner> exported = new ArrayList<>();
+
+    //When
+    runnersService.export(exported::add);
+
+    //Then
+    assertThat(exported).containsExactly(runner, other);
+    verify(entityManager).detach(runner);
+    verify(entityManager).detach(other);
   }
 
   @Test
@@ -154,5 +665,25 @@ public class RunnersServiceTest {
 
     //Then
     verify(runnersRepository).deleteById(THE_NICKNAME);
+    verify(runnerChangesRepository).insertAll(RunnerOperation.DELETE, List.of(THE_NICKNAME));
+    verify(runnersCache).invalidate(THE_NICKNAME);
+  }
+
+  private RunnerSummary summary(String nickname) {
+    return new SpelAwareProxyProjectionFactory().createProjection(RunnerSummary.class,
+        buildRunner().toBuilder().nickname(nickname).build());
+  }
+
+  private void givenShards(int shards) {
+    ReflectionTestUtils.setField(runnerShards, "shardRing", new ShardRing(shards, 160));
+    ReflectionTestUtils.setField(runnerShards, "transactionManager",
+        mock(PlatformTransactionManager.class));
+    ReflectionTestUtils.setField(runnerShards, "scatterThreads", 1);
+    runnerShards.init();
+  }
+
+  private void givenCacheMiss() {
+    when(runnersCache.get(eq(THE_NICKNAME), any())).thenAnswer(invocationOnMock ->
+        invocationOnMock.<Function<String, Optional<Runner>>>getArgument(1).apply(THE_NICKNAME));
   }
 }
\ No newline at end of file
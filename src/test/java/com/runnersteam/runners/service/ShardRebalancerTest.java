@@ -0,0 +1,160 @@
+package com.runnersteam.runners.service;
+
+import static com.runnersteam.runners.util.TestData.buildRunner;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.runnersteam.runners.config.RunnerShards;
+import com.runnersteam.runners.model.RaceResult;
+import com.runnersteam.runners.model.Runner;
+import com.runnersteam.runners.model.RunnerKey;
+import com.runnersteam.runners.repository.RaceResultsRepository;
+import com.runnersteam.runners.repository.RunnerEmailsRepository;
+import com.runnersteam.runners.repository.RunnersRepository;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+@ExtendWith(MockitoExtension.class)
+public class ShardRebalancerTest {
+
+  private static final String STAYS = "stays";
+  private static final String MOVES = "moves";
+
+  @InjectMocks
+  private ShardRebalancer shardRebalancer;
+
+  @Mock
+  private RunnerShards runnerShards;
+
+  @Mock
+  private RunnersRepository runnersRepository;
+
+  @Mock
+  private RaceResultsRepository raceResultsRepository;
+
+  @Mock
+  private RunnerEmailsRepository runnerEmailsRepository;
+
+  private final Runner moving = buildRunner().toBuilder().nickname(MOVES).build();
+  private final RaceResult result = RaceResult.builder().nickname(MOVES).race("theRace")
+      .raceDate(LocalDate.of(2019, 1, 1)).finishTimeSeconds(3600).build();
+  private final List<String> calls = new ArrayList<>();
+  private Integer currentShard;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    when(runnerShards.isSharded()).thenReturn(true);
+    when(runnerShards.count()).thenReturn(2);
+    when(runnerShards.shardOf(STAYS)).thenReturn(0);
+    when(runnerShards.shardOf(MOVES)).thenReturn(1);
+    when(runnerShards.onShard(anyInt(), any())).thenAnswer(invocation ->
+        onShard(invocation.getArgument(0), invocation.getArgument(1)));
+    doAnswer(invocation -> onShard(invocation.getArgument(0), () -> {
+      invocation.<Runnable>getArgument(1).run();
+      return null;
+    })).when(runnerShards).runOnShard(anyInt(), any());
+    when(runnerShards.byShard(any(), any())).thenAnswer(invocation -> {
+      Map<Integer, List<Object>> byShard = new TreeMap<>();
+      Function<Object, String> nickname = invocation.getArgument(1);
+      invocation.<Collection<Object>>getArgument(0).forEach(item -> byShard
+          .computeIfAbsent(runnerShards.shardOf(nickname.apply(item)), key -> new ArrayList<>())
+          .add(item));
+      return byShard;
+    });
+    when(runnersRepository.streamKeys()).thenAnswer(invocation -> currentShard == 0
+        ? Stream.of(key(STAYS), key(MOVES)) : Stream.of(key(MOVES)));
+    when(raceResultsRepository.findByNicknameIn(List.of(MOVES))).thenReturn(List.of(result));
+    doAnswer(invocation -> calls.add("delete-" + currentShard))
+        .when(runnersRepository).deleteInBatch(List.of(moving));
+  }
+
+  @Test
+  public void shouldCopyMisplacedRunnersToTheirShardThenDeleteThem() {
+    //Given
+    when(runnersRepository.findAllById(List.of(MOVES))).thenAnswer(invocation ->
+        currentShard == 0 ? List.of(moving) : List.of());
+    doAnswer(invocation -> calls.add("copy-" + currentShard))
+        .when(runnersRepository).insertCopies(List.of(moving));
+
+    //When
+    long moved = shardRebalancer.rebalance();
+
+    //Then
+    assertThat(moved).isEqualTo(1);
+    assertThat(calls).containsExactly("copy-1", "delete-0");
+    verify(raceResultsRepository).insertAll(List.of(result));
+  }
+
+  @Test
+  public void shouldNotCopyAgainRunnersAlreadyCopied() {
+    //Given
+    when(runnersRepository.findAllById(List.of(MOVES))).thenReturn(List.of(moving));
+
+    //When
+    shardRebalancer.rebalance();
+
+    //Then
+    assertThat(calls).containsExactly("delete-0");
+    verify(runnersRepository, never()).insertCopies(any());
+    verify(raceResultsRepository, never()).insertAll(any());
+  }
+
+  @Test
+  public void shouldReserveEmailsOfRunnersOnEveryShardBeforeMoving() {
+    //Given
+    when(runnersRepository.findAllById(List.of(MOVES))).thenAnswer(invocation ->
+        currentShard == 0 ? List.of(moving) : List.of());
+    when(runnerEmailsRepository.insertFromRunners()).thenAnswer(invocation ->
+        calls.add("reserve-" + currentShard) ? 2 : 0);
+    when(runnerEmailsRepository.insertMissing(any())).thenAnswer(invocation -> {
+      List<Runner> runners = invocation.getArgument(0);
+      calls.add("reserve-" + currentShard + "-" + runners.get(0).getNickname() + "-"
+          + runners.get(0).getEmail());
+      return runners.size();
+    });
+    doAnswer(invocation -> calls.add("copy-" + currentShard))
+        .when(runnersRepository).insertCopies(List.of(moving));
+
+    //When
+    shardRebalancer.rebalance();
+
+    //Then
+    assertThat(calls).containsExactly("reserve-0", "reserve-0-" + MOVES + "-" + moving.getEmail(),
+        "copy-1", "delete-0");
+  }
+
+  private Object onShard(int shard, Supplier<?> work) {
+    Integer previous = currentShard;
+    currentShard = shard;
+    try {
+      return work.get();
+    } finally {
+      currentShard = previous;
+    }
+  }
+
+  private RunnerKey key(String nickname) {
+    return new SpelAwareProxyProjectionFactory().createProjection(RunnerKey.class,
+        buildRunner().toBuilder().nickname(nickname).build());
+  }
+}